@@ -0,0 +1,34 @@
+package com.polarbookshop.orderservice.domain;
+
+import com.polarbookshop.orderservice.book.Book;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderBenchmarks {
+
+    private Book book;
+
+    @Setup
+    public void setup() {
+        book = new Book("1234567891", "Northern Lights", "Lyra Silverstar", 9.90);
+    }
+
+    @Benchmark
+    public Order buildAcceptedOrder() {
+        return OrderService.buildAcceptedOrder(book, 2);
+    }
+
+    @Benchmark
+    public Order buildRejectedOrder() {
+        return OrderService.buildRejectedOrder(book.isbn(), 2);
+    }
+
+    @Benchmark
+    public Order constructOrder() {
+        return Order.of(book.isbn(), book.title(), book.price(), 2, OrderStatus.ACCEPTED);
+    }
+}
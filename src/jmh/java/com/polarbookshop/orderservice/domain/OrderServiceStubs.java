@@ -0,0 +1,114 @@
+package com.polarbookshop.orderservice.domain;
+
+import com.polarbookshop.orderservice.book.Book;
+import com.polarbookshop.orderservice.book.BookClient;
+import com.polarbookshop.orderservice.book.CatalogReplica;
+import com.polarbookshop.orderservice.config.CatalogReplicaProperties;
+import com.polarbookshop.orderservice.config.ClientProperties;
+import com.polarbookshop.orderservice.config.OrderProperties;
+import com.polarbookshop.orderservice.config.OrderUpdatesProperties;
+import com.polarbookshop.orderservice.config.RecentOrdersProperties;
+import com.polarbookshop.orderservice.order.event.OrderOutbox;
+import com.polarbookshop.orderservice.order.event.OrderUpdates;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.transaction.reactive.TransactionCallback;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+final class OrderServiceStubs {
+
+    private OrderServiceStubs() {
+    }
+
+    static OrderService orderService(Map<String, Book> catalog) {
+        var recentOrders = recentOrders();
+        return new OrderService(orderRepository(), bookClient(catalog), orderOutbox(), orderUpdates(recentOrders),
+                recentOrders, new OrderStats(null, transactionalOperator()), new IdempotencyKeys(null),
+                orderProperties(), Optional.empty(), new OrderMetrics(new SimpleMeterRegistry()),
+                transactionalOperator());
+    }
+
+    static TransactionalOperator transactionalOperator() {
+        return new TransactionalOperator() {
+            @Override
+            public <T> Mono<T> transactional(Mono<T> mono) {
+                return mono;
+            }
+
+            @Override
+            public <T> Flux<T> execute(TransactionCallback<T> action) {
+                return Flux.from(action.doInTransaction(null));
+            }
+        };
+    }
+
+    static OrderProperties orderProperties() {
+        return new OrderProperties(100, 1000, OrderProperties.DegradedMode.REJECT, 100);
+    }
+
+    static BookClient bookClient(Map<String, Book> catalog) {
+        var clientProperties = new ClientProperties(URI.create("http://localhost:9001"),
+                new ClientProperties.CatalogCache(Duration.ofMinutes(10), Duration.ofSeconds(30), 100),
+                new ClientProperties.CatalogClient(Duration.ofSeconds(3), Duration.ofMillis(200), Duration.ofSeconds(1),
+                        3, 3, Duration.ofMillis(100), true, Duration.ofMillis(20), 16),
+                new ClientProperties.CatalogCircuitBreaker(50, 80, Duration.ofSeconds(2), 50, 20,
+                        Duration.ofSeconds(10), 5));
+        var catalogReplica = new CatalogReplica(WebClient.create(), null,
+                new CatalogReplicaProperties(false, Duration.ofSeconds(30), 500, Duration.ofMillis(50), 3,
+                        Duration.ofMillis(500)), new SimpleMeterRegistry());
+        return new BookClient(WebClient.create(), catalogReplica, clientProperties, new SimpleMeterRegistry()) {
+            @Override
+            public Mono<Book> getBookByIsbn(String isbn) {
+                return Mono.justOrEmpty(catalog.get(isbn));
+            }
+        };
+    }
+
+    static OrderOutbox orderOutbox() {
+        return new OrderOutbox(null) {
+            @Override
+            public Mono<Void> append(Collection<Long> orderIds) {
+                return Mono.empty();
+            }
+        };
+    }
+
+    static RecentOrders recentOrders() {
+        return new RecentOrders(null,
+                new RecentOrdersProperties(false, 100, DataSize.ofMegabytes(32), Duration.ofMinutes(10)),
+                new SimpleMeterRegistry());
+    }
+
+    static OrderUpdates orderUpdates(RecentOrders recentOrders) {
+        return new OrderUpdates(null, null, recentOrders,
+                new OrderUpdatesProperties(false, Duration.ofSeconds(10), Duration.ofSeconds(1)));
+    }
+
+    static OrderRepository orderRepository() {
+        var sequence = new AtomicLong();
+        return (OrderRepository) Proxy.newProxyInstance(
+                OrderRepository.class.getClassLoader(),
+                new Class<?>[] { OrderRepository.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> Mono.just(withId((Order) args[0], sequence.incrementAndGet()));
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static Order withId(Order order, long id) {
+        return new Order(id, order.bookIsbn(), order.bookName(), order.bookPrice(), order.quantity(),
+                order.status(), order.createdDate(), order.lastModifiedDate(), order.version(),
+                order.createdBy(), order.lastModifiedBy());
+    }
+}
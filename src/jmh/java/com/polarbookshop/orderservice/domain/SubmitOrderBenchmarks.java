@@ -0,0 +1,34 @@
+package com.polarbookshop.orderservice.domain;
+
+import com.polarbookshop.orderservice.book.Book;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SubmitOrderBenchmarks {
+
+    private static final String AVAILABLE_ISBN = "1234567891";
+    private static final String UNKNOWN_ISBN = "1234567890";
+
+    private OrderService orderService;
+
+    @Setup
+    public void setup() {
+        var book = new Book(AVAILABLE_ISBN, "Northern Lights", "Lyra Silverstar", 9.90);
+        orderService = OrderServiceStubs.orderService(Map.of(AVAILABLE_ISBN, book));
+    }
+
+    @Benchmark
+    public Order submitAcceptedOrder() {
+        return orderService.submitOrder(AVAILABLE_ISBN, 2).block();
+    }
+
+    @Benchmark
+    public Order submitRejectedOrder() {
+        return orderService.submitOrder(UNKNOWN_ISBN, 2).block();
+    }
+}
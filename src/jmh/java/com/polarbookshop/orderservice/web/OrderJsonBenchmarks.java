@@ -0,0 +1,49 @@
+package com.polarbookshop.orderservice.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.polarbookshop.orderservice.domain.Order;
+import com.polarbookshop.orderservice.domain.OrderStatus;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderJsonBenchmarks {
+
+    private ObjectMapper objectMapper;
+    private Order order;
+    private byte[] orderJson;
+    private byte[] orderRequestJson;
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        order = new Order(317L, "1234567891", "Northern Lights - Lyra Silverstar", 9.90, 1,
+                OrderStatus.ACCEPTED, Instant.now(), Instant.now(), 1, "bjorn", "bjorn");
+        orderJson = objectMapper.writeValueAsBytes(order);
+        orderRequestJson = objectMapper.writeValueAsBytes(new OrderRequest("1234567891", 1));
+    }
+
+    @Benchmark
+    public byte[] serializeOrder() throws IOException {
+        return objectMapper.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public Order deserializeOrder() throws IOException {
+        return objectMapper.readValue(orderJson, Order.class);
+    }
+
+    @Benchmark
+    public OrderRequest deserializeOrderRequest() throws IOException {
+        return objectMapper.readValue(orderRequestJson, OrderRequest.class);
+    }
+}
@@ -0,0 +1,108 @@
+package com.polarbookshop.orderservice.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.polarbookshop.orderservice.domain.Order;
+import com.polarbookshop.orderservice.domain.OrderStatus;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.r2dbc.spi.ColumnMetadata;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.data.r2dbc.convert.MappingR2dbcConverter;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.PostgresDialect;
+import org.springframework.data.r2dbc.mapping.R2dbcMappingContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderRowJsonBenchmarks {
+
+    private ObjectMapper objectMapper;
+    private DataBufferFactory bufferFactory;
+    private Row row;
+    private RowMetadata metadata;
+    private R2dbcConverter converter;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+        var now = LocalDateTime.now();
+        Map<String, Object> columns = Map.ofEntries(
+                Map.entry("id", 317L),
+                Map.entry("book_isbn", "1234567891"),
+                Map.entry("book_name", "Northern Lights - Lyra Silverstar"),
+                Map.entry("book_price", 9.90),
+                Map.entry("quantity", 1),
+                Map.entry("status", OrderStatus.ACCEPTED.name()),
+                Map.entry("created_date", now),
+                Map.entry("last_modified_date", now),
+                Map.entry("version", 1),
+                Map.entry("created_by", "bjorn"),
+                Map.entry("last_modified_by", "bjorn"));
+        var columnMetadatas = columns.keySet().stream()
+                .map(name -> (ColumnMetadata) Proxy.newProxyInstance(ColumnMetadata.class.getClassLoader(),
+                        new Class<?>[] { ColumnMetadata.class },
+                        (proxy, method, args) -> switch (method.getName()) {
+                            case "getName" -> name;
+                            default -> throw new UnsupportedOperationException(method.getName());
+                        }))
+                .toList();
+        metadata = (RowMetadata) Proxy.newProxyInstance(RowMetadata.class.getClassLoader(),
+                new Class<?>[] { RowMetadata.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "contains" -> columns.containsKey((String) args[0]);
+                    case "getColumnMetadatas" -> columnMetadatas;
+                    case "getColumnNames" -> columns.keySet();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        row = (Row) Proxy.newProxyInstance(Row.class.getClassLoader(), new Class<?>[] { Row.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "get" -> columns.get((String) args[0]);
+                    case "getMetadata" -> metadata;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+
+        // The converter the repositories use, configured the way the R2DBC auto-configuration does for Postgres.
+        var conversions = R2dbcCustomConversions.of(PostgresDialect.INSTANCE, List.of());
+        var mappingContext = new R2dbcMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        converter = new MappingR2dbcConverter(mappingContext, conversions);
+    }
+
+    @Benchmark
+    public int entityThenJackson() throws IOException {
+        var order = converter.read(Order.class, row, metadata);
+        var buffer = bufferFactory.wrap(objectMapper.writeValueAsBytes(order));
+        return release(buffer);
+    }
+
+    @Benchmark
+    public int rowToBuffer() {
+        return release(OrderJsonWriter.writeLine(row, bufferFactory));
+    }
+
+    private static int release(DataBuffer buffer) {
+        var written = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return written;
+    }
+}
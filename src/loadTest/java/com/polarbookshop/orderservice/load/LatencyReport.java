@@ -0,0 +1,82 @@
+package com.polarbookshop.orderservice.load;
+
+import com.polarbookshop.orderservice.load.LoadTestSettings.Operation;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class LatencyReport {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+
+    LatencyReport() {
+        for (var operation : Operation.values()) {
+            histograms.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3));
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    void recordSuccess(Operation operation, long latencyNanos) {
+        histograms.get(operation).recordValue(Math.min(latencyNanos, HIGHEST_TRACKABLE_NANOS));
+    }
+
+    void recordError(Operation operation) {
+        errors.get(operation).incrementAndGet();
+    }
+
+    long totalSuccesses() {
+        return histograms.values().stream().mapToLong(Histogram::getTotalCount).sum();
+    }
+
+    void reset() {
+        histograms.values().forEach(Histogram::reset);
+        errors.values().forEach(count -> count.set(0));
+    }
+
+    void write(LoadTestSettings settings, Duration elapsed) throws IOException {
+        Files.createDirectories(settings.reportDir());
+        try (var summary = new PrintStream(Files.newOutputStream(settings.reportDir().resolve("summary.txt")))) {
+            printSummary(settings, elapsed, summary);
+        }
+        printSummary(settings, elapsed, System.out);
+        for (var entry : histograms.entrySet()) {
+            var file = settings.reportDir().resolve(entry.getKey().name().toLowerCase() + ".hgrm");
+            try (var out = new PrintStream(Files.newOutputStream(file))) {
+                entry.getValue().outputPercentileDistribution(out, NANOS_PER_MILLI);
+            }
+        }
+    }
+
+    private void printSummary(LoadTestSettings settings, Duration elapsed, PrintStream out) {
+        var seconds = elapsed.toMillis() / 1000.0;
+        out.printf("Load test: %d workers, %d users, mix %s, measured for %.1fs%n",
+                settings.concurrency(), settings.users(), settings.mix(), seconds);
+        out.printf("%-10s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "errors", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (var operation : Operation.values()) {
+            var histogram = histograms.get(operation);
+            out.printf("%-10s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    operation.name().toLowerCase(),
+                    histogram.getTotalCount(),
+                    errors.get(operation).get(),
+                    histogram.getTotalCount() / seconds,
+                    histogram.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                    histogram.getValueAtPercentile(90) / NANOS_PER_MILLI,
+                    histogram.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                    histogram.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+                    histogram.getMaxValue() / NANOS_PER_MILLI);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.polarbookshop.orderservice.load;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+record LoadTestSettings(
+        Duration duration,
+        Duration warmup,
+        int concurrency,
+        int users,
+        Map<Operation, Integer> mix,
+        Duration catalogLatency,
+        Path reportDir
+) {
+
+    enum Operation {
+        SUBMIT,
+        LIST,
+        DISPATCH
+    }
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                Duration.ofSeconds(Long.getLong("loadTest.duration", 60)),
+                Duration.ofSeconds(Long.getLong("loadTest.warmup", 10)),
+                Integer.getInteger("loadTest.concurrency", 32),
+                Integer.getInteger("loadTest.users", 50),
+                parseMix(System.getProperty("loadTest.mix", "submit=60,list=30,dispatch=10")),
+                Duration.ofMillis(Long.getLong("loadTest.catalogLatency", 5)),
+                Path.of(System.getProperty("loadTest.reportDir", "build/reports/load-test"))
+        );
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        var mix = new LinkedHashMap<Operation, Integer>();
+        for (var entry : value.split(",")) {
+            var parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Malformed load test mix entry: " + entry);
+            }
+            mix.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.valueOf(parts[1].trim()));
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The load test mix must have a positive total weight: " + value);
+        }
+        return mix;
+    }
+
+    Operation pick(int roll) {
+        var remaining = roll;
+        for (var entry : mix.entrySet()) {
+            remaining -= entry.getValue();
+            if (remaining < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Roll " + roll + " exceeds the total mix weight");
+    }
+
+    int totalWeight() {
+        return mix.values().stream().mapToInt(Integer::intValue).sum();
+    }
+}
@@ -0,0 +1,221 @@
+package com.polarbookshop.orderservice.load;
+
+import com.polarbookshop.orderservice.domain.Order;
+import com.polarbookshop.orderservice.domain.OrderStatus;
+import com.polarbookshop.orderservice.load.LoadTestSettings.Operation;
+import com.polarbookshop.orderservice.order.event.OrderDispatchedMessage;
+import com.polarbookshop.orderservice.web.OrderRequest;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.cloud.stream.binder.test.InputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import({TestChannelBinderConfiguration.class, OrderServiceLoadTests.LocalSecurityConfig.class})
+@Testcontainers
+class OrderServiceLoadTests {
+
+    private static final int CATALOG_SIZE = 500;
+    private static final String UNKNOWN_ISBN_PREFIX = "404";
+
+    private static final LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+    private static final MockWebServer catalogService = startCatalogService();
+
+    @Container
+    static PostgreSQLContainer<?> postgresql = new PostgreSQLContainer<>("postgres:14.4");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private InputDestination input;
+
+    private final ConcurrentLinkedQueue<Long> acceptedOrderIds = new ConcurrentLinkedQueue<>();
+
+    @DynamicPropertySource
+    static void loadTestProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.r2dbc.url", OrderServiceLoadTests::r2dbcUrl);
+        registry.add("spring.r2dbc.username", postgresql::getUsername);
+        registry.add("spring.r2dbc.password", postgresql::getPassword);
+        registry.add("spring.flyway.url", postgresql::getJdbcUrl);
+        registry.add("polar.catalog-service-uri", () -> catalogService.url("/").toString());
+        registry.add("polar.outbox.publisher-confirms", () -> false);
+    }
+
+    private static String r2dbcUrl() {
+        return String.format("r2dbc:postgresql://%s:%s/%s",
+                postgresql.getHost(),
+                postgresql.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT),
+                postgresql.getDatabaseName());
+    }
+
+    @AfterAll
+    static void stopCatalogService() throws IOException {
+        catalogService.shutdown();
+    }
+
+    @Test
+    void runConfiguredMix() throws IOException {
+        var webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .build();
+        var tokens = IntStream.range(0, settings.users())
+                .mapToObj(i -> LocalJwtIssuer.issue("load-user-" + i,
+                        settings.warmup().plus(settings.duration()).plusMinutes(5)))
+                .toList();
+        var report = new LatencyReport();
+
+        drive(webClient, tokens, report, settings.warmup());
+        report.reset();
+        var started = System.nanoTime();
+        drive(webClient, tokens, report, settings.duration());
+        var elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        report.write(settings, elapsed);
+        assertThat(report.totalSuccesses()).isPositive();
+    }
+
+    private void drive(WebClient webClient, List<String> tokens, LatencyReport report, Duration duration) {
+        if (duration.isZero()) {
+            return;
+        }
+        var deadline = System.nanoTime() + duration.toNanos();
+        Flux.range(0, settings.concurrency())
+                .flatMap(worker -> Mono.defer(() -> execute(webClient, tokens, report))
+                        .repeat(() -> System.nanoTime() < deadline), settings.concurrency())
+                .blockLast(duration.plusMinutes(1));
+    }
+
+    private Mono<Void> execute(WebClient webClient, List<String> tokens, LatencyReport report) {
+        var random = ThreadLocalRandom.current();
+        var operation = settings.pick(random.nextInt(settings.totalWeight()));
+        var token = tokens.get(random.nextInt(tokens.size()));
+        var started = System.nanoTime();
+        return perform(operation, webClient, token)
+                .doOnSuccess(ignored -> report.recordSuccess(operation, System.nanoTime() - started))
+                .onErrorResume(e -> {
+                    report.recordError(operation);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> perform(Operation operation, WebClient webClient, String token) {
+        return switch (operation) {
+            case SUBMIT -> submitOrder(webClient, token);
+            case LIST -> listOrders(webClient, token);
+            case DISPATCH -> dispatchOrder();
+        };
+    }
+
+    private Mono<Void> submitOrder(WebClient webClient, String token) {
+        var random = ThreadLocalRandom.current();
+        var isbn = random.nextInt(20) == 0
+                ? UNKNOWN_ISBN_PREFIX + random.nextInt(CATALOG_SIZE)
+                : isbn(random.nextInt(CATALOG_SIZE));
+        return webClient.post().uri("/orders")
+                .headers(headers -> headers.setBearerAuth(token))
+                .bodyValue(new OrderRequest(isbn, 1 + random.nextInt(5)))
+                .retrieve()
+                .bodyToMono(Order.class)
+                .doOnNext(order -> {
+                    if (order.status() == OrderStatus.ACCEPTED) {
+                        acceptedOrderIds.add(order.id());
+                    }
+                })
+                .then();
+    }
+
+    private Mono<Void> listOrders(WebClient webClient, String token) {
+        return webClient.get().uri("/orders")
+                .headers(headers -> headers.setBearerAuth(token))
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .toBodilessEntity()
+                .then();
+    }
+
+    private Mono<Void> dispatchOrder() {
+        return Mono.fromRunnable(() -> {
+            var orderId = acceptedOrderIds.poll();
+            if (orderId != null) {
+                input.send(MessageBuilder.withPayload(new OrderDispatchedMessage(orderId)).build(), "order-dispatched");
+            }
+        });
+    }
+
+    private static MockWebServer startCatalogService() {
+        var server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                var isbn = request.getPath().substring(request.getPath().lastIndexOf('/') + 1);
+                if (isbn.startsWith(UNKNOWN_ISBN_PREFIX)) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                return new MockResponse()
+                        .setBodyDelay(settings.catalogLatency().toMillis(), TimeUnit.MILLISECONDS)
+                        .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .setBody("""
+                                {
+                                    "isbn": "%s",
+                                    "title": "Title %s",
+                                    "author": "Author",
+                                    "price": 9.90,
+                                    "publisher": "Polarsophia"
+                                }
+                                """.formatted(isbn, isbn));
+            }
+        });
+        try {
+            server.start();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to start the catalog stand-in", e);
+        }
+        return server;
+    }
+
+    private static String isbn(int index) {
+        return String.valueOf(9780000000000L + index);
+    }
+
+    @TestConfiguration
+    static class LocalSecurityConfig {
+
+        @Bean
+        ReactiveJwtDecoder reactiveJwtDecoder() {
+            return LocalJwtIssuer.decoder();
+        }
+    }
+}
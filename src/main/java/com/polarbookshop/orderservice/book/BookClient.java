@@ -1,36 +1,171 @@
 package com.polarbookshop.orderservice.book;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.polarbookshop.orderservice.config.ClientProperties;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 import reactor.util.retry.Retry;
 
-import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
 
 @Component
 public class BookClient {
     private static final String BOOKS_ROOT_API = "/books/";
+    private static final String CACHE_NAME = "catalog.books";
+    private static final String CIRCUIT_BREAKER_NAME = "catalog";
 
     private final WebClient webClient;
+    private final CatalogReplica catalogReplica;
+    private final ClientProperties.CatalogClient catalogClient;
+    private final AsyncCache<String, Optional<Book>> cache;
+    private final CatalogLatency catalogLatency;
+    private final Counter hedgedRequests;
+    private final CircuitBreaker circuitBreaker;
 
-    public BookClient(WebClient webClient) {
+    public BookClient(WebClient webClient, CatalogReplica catalogReplica, ClientProperties clientProperties,
+                      MeterRegistry meterRegistry) {
         this.webClient = webClient;
+        this.catalogReplica = catalogReplica;
+        this.catalogClient = clientProperties.catalogClient();
+        this.cache = buildCache(clientProperties.catalogCache());
+        this.catalogLatency = new CatalogLatency(clientProperties.catalogClient(), meterRegistry);
+        this.hedgedRequests = meterRegistry.counter("catalog.requests.hedged");
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), CACHE_NAME);
+        var circuitBreakers = buildCircuitBreakers(clientProperties.catalogCircuitBreaker());
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(meterRegistry);
+        this.circuitBreaker = circuitBreakers.circuitBreaker(CIRCUIT_BREAKER_NAME);
+    }
+
+    public CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public boolean isCatalogAvailable() {
+        var state = circuitBreaker.getState();
+        return state != CircuitBreaker.State.OPEN && state != CircuitBreaker.State.FORCED_OPEN;
     }
 
     public Mono<Book> getBookByIsbn(String isbn) {
-        return webClient
-                .get()
-                .uri(BOOKS_ROOT_API + isbn)
-                .retrieve()
-                .bodyToMono(Book.class)
-                .timeout(Duration.ofSeconds(3), Mono.empty())
-                .onErrorResume(WebClientResponseException.NotFound.class,
-                        e -> Mono.empty())
+        // Deferred so nothing is fetched until subscription, and a resubscription after a
+        // failure looks the book up again instead of replaying the failed future.
+        return Mono.defer(() -> {
+            var replicated = catalogReplica.find(isbn);
+            if (replicated.isPresent()) {
+                return Mono.just(replicated.get());
+            }
+            // Callers share one in-flight lookup per ISBN, so a cancelled subscriber
+            // must not cancel the cached future on behalf of the others.
+            var lookup = cache.get(isbn, (key, executor) -> fetchBook(key).toFuture());
+            return Mono.fromFuture(lookup.copy())
+                    .flatMap(Mono::justOrEmpty)
+                    // The cache drops a failed lookup only after the copies have completed, so an
+                    // immediate resubscription would otherwise be handed the same failed future.
+                    .doOnError(e -> cache.asMap().remove(isbn, lookup));
+        }).onErrorMap(e -> !(e instanceof CatalogUnavailableException),
+                e -> new CatalogUnavailableException(isbn, e));
+    }
+
+    // A batch can name hundreds of books, so the lookups that miss the cache are bounded rather than each
+    // opening a connection to the catalog at once, twice over when hedged.
+    public Mono<Map<String, BookLookup>> getBooksByIsbn(Collection<String> isbns) {
+        return Flux.fromIterable(new LinkedHashSet<>(isbns))
+                .flatMap(isbn -> getBookByIsbn(isbn)
+                        .map(BookLookup::found)
+                        .defaultIfEmpty(BookLookup.notFound())
+                        .onErrorReturn(CatalogUnavailableException.class, BookLookup.unavailable())
+                        .map(lookup -> Tuples.of(isbn, lookup)), catalogClient.lookupConcurrency())
+                .collectMap(Tuple2::getT1, Tuple2::getT2);
+    }
+
+    private Mono<Optional<Book>> fetchBook(String isbn) {
+        return Mono.defer(() -> attempt(isbn, catalogLatency.budget()))
                 .retryWhen(
-                        Retry.backoff(3, Duration.ofMillis(100))
+                        Retry.backoff(catalogClient.retries(), catalogClient.retryBackoff())
                 )
-                .onErrorResume(Exception.class,
-                        e -> Mono.empty());
+                .timeout(catalogClient.totalTimeout())
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    private Mono<Optional<Book>> attempt(String isbn, CatalogLatency.Budget budget) {
+        if (budget.hedgeDelay() == null) {
+            return request(isbn).timeout(budget.attemptTimeout());
+        }
+        var hedge = Mono.delay(budget.hedgeDelay())
+                .doOnNext(tick -> hedgedRequests.increment())
+                .then(request(isbn));
+        return Mono.firstWithValue(request(isbn), hedge)
+                .timeout(budget.attemptTimeout());
+    }
+
+    private Mono<Optional<Book>> request(String isbn) {
+        return Mono.defer(() -> {
+            var started = System.nanoTime();
+            return webClient
+                    .get()
+                    .uri(BOOKS_ROOT_API + isbn)
+                    .retrieve()
+                    .bodyToMono(Book.class)
+                    .map(Optional::of)
+                    .onErrorResume(WebClientResponseException.NotFound.class,
+                            e -> Mono.just(Optional.empty()))
+                    // Failed and timed-out attempts count too, or the derived budget only sees the fast ones.
+                    .doFinally(signal -> catalogLatency.record(System.nanoTime() - started));
+        });
+    }
+
+    private static CircuitBreakerRegistry buildCircuitBreakers(ClientProperties.CatalogCircuitBreaker properties) {
+        return CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(properties.failureRateThreshold())
+                .slowCallRateThreshold(properties.slowCallRateThreshold())
+                .slowCallDurationThreshold(properties.slowCallDurationThreshold())
+                .slidingWindowSize(properties.slidingWindowSize())
+                .minimumNumberOfCalls(properties.minimumNumberOfCalls())
+                .waitDurationInOpenState(properties.waitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(properties.permittedCallsInHalfOpenState())
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .build());
+    }
+
+    private static AsyncCache<String, Optional<Book>> buildCache(ClientProperties.CatalogCache properties) {
+        return Caffeine.newBuilder()
+                .maximumSize(properties.maxSize())
+                .expireAfter(new Expiry<String, Optional<Book>>() {
+                    @Override
+                    public long expireAfterCreate(String isbn, Optional<Book> book, long currentTime) {
+                        return book.isPresent()
+                                ? properties.ttl().toNanos()
+                                : properties.negativeTtl().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String isbn, Optional<Book> book, long currentTime, long currentDuration) {
+                        return expireAfterCreate(isbn, book, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String isbn, Optional<Book> book, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
     }
 }
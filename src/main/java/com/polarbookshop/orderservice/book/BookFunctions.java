@@ -0,0 +1,49 @@
+package com.polarbookshop.orderservice.book;
+
+import com.polarbookshop.orderservice.config.CatalogReplicaProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.util.function.Consumer;
+
+@Configuration
+public class BookFunctions {
+
+    private static final Logger log = LoggerFactory.getLogger(BookFunctions.class);
+
+    // Every instance keeps its own replica, so the binding is anonymous and an update dropped here is not
+    // redelivered: once retries are exhausted the replica stops answering until it has resynchronized.
+    @Bean
+    public Consumer<Flux<BookUpdatedMessage>> bookUpdated(CatalogReplica catalogReplica,
+                                                          CatalogReplicaProperties catalogReplicaProperties) {
+        return flux -> flux
+                .filter(CatalogReplica::isComplete)
+                .bufferTimeout(catalogReplicaProperties.batchSize(), catalogReplicaProperties.batchWindow())
+                // A batch held by the retry backoff keeps concatMap busy while further windows close, which
+                // bufferTimeout cannot hold on its own.
+                .onBackpressureBuffer()
+                .concatMap(updates -> Mono.defer(() -> catalogReplica.apply(updates))
+                        .retryWhen(Retry.backoff(catalogReplicaProperties.retries(),
+                                catalogReplicaProperties.retryBackoff()))
+                        .doOnSuccess(ignored -> log.info("Applied {} catalog book updates", updates.size()))
+                        .onErrorResume(e -> {
+                            log.error("Failed to apply {} catalog book updates, resynchronizing the replica",
+                                    updates.size(), e);
+                            catalogReplica.markStale();
+                            return Mono.empty();
+                        }))
+                // The updates in flight when the consumer fails are lost as well.
+                .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, catalogReplicaProperties.retryBackoff())
+                        .doBeforeRetry(signal -> {
+                            log.error("The catalog book updates consumer failed, resynchronizing the replica",
+                                    signal.failure());
+                            catalogReplica.markStale();
+                        }))
+                .subscribe();
+    }
+}
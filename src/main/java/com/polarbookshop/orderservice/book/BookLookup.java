@@ -0,0 +1,18 @@
+package com.polarbookshop.orderservice.book;
+
+public record BookLookup(
+        Book book,
+        boolean catalogAvailable
+) {
+    static BookLookup found(Book book) {
+        return new BookLookup(book, true);
+    }
+
+    static BookLookup notFound() {
+        return new BookLookup(null, true);
+    }
+
+    static BookLookup unavailable() {
+        return new BookLookup(null, false);
+    }
+}
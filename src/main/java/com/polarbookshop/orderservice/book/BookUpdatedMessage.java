@@ -0,0 +1,10 @@
+package com.polarbookshop.orderservice.book;
+
+public record BookUpdatedMessage(
+        String isbn,
+        String title,
+        String author,
+        Double price,
+        Integer version
+) {
+}
@@ -0,0 +1,41 @@
+package com.polarbookshop.orderservice.book;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+@Component
+public class CatalogHealthIndicator implements ReactiveHealthIndicator {
+
+    private final BookClient bookClient;
+
+    public CatalogHealthIndicator(BookClient bookClient) {
+        this.bookClient = bookClient;
+    }
+
+    @Override
+    public Mono<Health> health() {
+        return Mono.fromSupplier(() -> {
+            var circuitBreaker = bookClient.circuitBreaker();
+            var metrics = circuitBreaker.getMetrics();
+            return Health.status(status(circuitBreaker.getState()))
+                    .withDetail("circuitBreakerState", circuitBreaker.getState())
+                    .withDetail("failureRate", metrics.getFailureRate())
+                    .withDetail("slowCallRate", metrics.getSlowCallRate())
+                    .withDetail("bufferedCalls", metrics.getNumberOfBufferedCalls())
+                    .withDetail("notPermittedCalls", metrics.getNumberOfNotPermittedCalls())
+                    .build();
+        });
+    }
+
+    private static Status status(CircuitBreaker.State state) {
+        return switch (state) {
+            case OPEN, FORCED_OPEN -> Status.OUT_OF_SERVICE;
+            case HALF_OPEN -> Status.UNKNOWN;
+            default -> Status.UP;
+        };
+    }
+}
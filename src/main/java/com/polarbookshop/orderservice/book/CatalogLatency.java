@@ -0,0 +1,78 @@
+package com.polarbookshop.orderservice.book;
+
+import com.polarbookshop.orderservice.config.ClientProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class CatalogLatency {
+
+    private static final long MIN_SAMPLES = 20;
+    private static final long REFRESH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ClientProperties.CatalogClient properties;
+    private final Timer timer;
+    private final AtomicLong lastRefresh = new AtomicLong(System.nanoTime() - REFRESH_INTERVAL_NANOS);
+    private volatile Budget budget;
+
+    CatalogLatency(ClientProperties.CatalogClient properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.timer = Timer.builder("catalog.requests")
+                .publishPercentiles(0.95, 0.99)
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .distributionStatisticBufferLength(3)
+                .register(meterRegistry);
+        this.budget = new Budget(properties.attemptTimeoutMax(), null);
+    }
+
+    void record(long latencyNanos) {
+        timer.record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    Budget budget() {
+        var now = System.nanoTime();
+        var last = lastRefresh.get();
+        if (now - last >= REFRESH_INTERVAL_NANOS && lastRefresh.compareAndSet(last, now)) {
+            budget = computeBudget();
+        }
+        return budget;
+    }
+
+    private Budget computeBudget() {
+        var snapshot = timer.takeSnapshot();
+        if (snapshot.count() < MIN_SAMPLES) {
+            return new Budget(properties.attemptTimeoutMax(), null);
+        }
+        var p95 = percentile(snapshot.percentileValues(), 0.95);
+        var p99 = percentile(snapshot.percentileValues(), 0.99);
+        var attemptTimeout = clamp(p99.multipliedBy(properties.timeoutMultiplier()),
+                properties.attemptTimeoutMin(), properties.attemptTimeoutMax());
+        var hedgeDelay = properties.hedgingEnabled()
+                ? clamp(p95, properties.hedgeDelayMin(), attemptTimeout)
+                : null;
+        return new Budget(attemptTimeout, hedgeDelay);
+    }
+
+    private static Duration percentile(ValueAtPercentile[] values, double percentile) {
+        for (var value : values) {
+            if (value.percentile() == percentile) {
+                return Duration.ofNanos((long) value.value(TimeUnit.NANOSECONDS));
+            }
+        }
+        return Duration.ZERO;
+    }
+
+    private static Duration clamp(Duration value, Duration min, Duration max) {
+        return value.compareTo(min) < 0 ? min : value.compareTo(max) > 0 ? max : value;
+    }
+
+    record Budget(
+            Duration attemptTimeout,
+            Duration hedgeDelay
+    ) {
+    }
+}
@@ -0,0 +1,190 @@
+package com.polarbookshop.orderservice.book;
+
+import com.polarbookshop.orderservice.config.CatalogReplicaProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+public class CatalogReplica {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogReplica.class);
+    private static final String BOOKS_ROOT_API = "/books";
+
+    private final WebClient webClient;
+    private final DatabaseClient databaseClient;
+    private final CatalogReplicaProperties catalogReplicaProperties;
+    private final Map<String, Entry> books = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    private volatile boolean loaded;
+    private volatile boolean stale;
+
+    public CatalogReplica(WebClient webClient, DatabaseClient databaseClient,
+                          CatalogReplicaProperties catalogReplicaProperties, MeterRegistry meterRegistry) {
+        this.webClient = webClient;
+        this.databaseClient = databaseClient;
+        this.catalogReplicaProperties = catalogReplicaProperties;
+        this.hits = meterRegistry.counter("catalog.replica.lookups", "result", "hit");
+        this.misses = meterRegistry.counter("catalog.replica.lookups", "result", "miss");
+        meterRegistry.gaugeMapSize("catalog.replica.books", Tags.empty(), books);
+    }
+
+    public Optional<Book> find(String isbn) {
+        if (!catalogReplicaProperties.enabled() || !loaded || stale) {
+            return Optional.empty();
+        }
+        var entry = books.get(isbn);
+        (entry != null ? hits : misses).increment();
+        return Optional.ofNullable(entry).map(Entry::book);
+    }
+
+    public Mono<Void> apply(List<BookUpdatedMessage> batch) {
+        if (batch.isEmpty()) {
+            return Mono.empty();
+        }
+        // A single upsert may touch each ISBN only once.
+        var updates = List.copyOf(batch.stream()
+                .collect(Collectors.toMap(BookUpdatedMessage::isbn, Function.identity(),
+                        (current, update) -> version(update) >= version(current) ? update : current,
+                        LinkedHashMap::new))
+                .values());
+        return databaseClient.sql("""
+                        INSERT INTO catalog_books (isbn, title, author, price, version, updated_date)
+                        SELECT isbn, title, author, price, version, now()
+                        FROM unnest(CAST(:isbns AS varchar[]), CAST(:titles AS varchar[]), CAST(:authors AS varchar[]),
+                                    CAST(:prices AS float8[]), CAST(:versions AS integer[]))
+                            AS book (isbn, title, author, price, version)
+                        ON CONFLICT (isbn) DO UPDATE
+                        SET title = EXCLUDED.title, author = EXCLUDED.author, price = EXCLUDED.price,
+                            version = EXCLUDED.version, updated_date = EXCLUDED.updated_date
+                        WHERE catalog_books.version <= EXCLUDED.version
+                        """)
+                .bind("isbns", updates.stream().map(BookUpdatedMessage::isbn).toArray(String[]::new))
+                .bind("titles", updates.stream().map(BookUpdatedMessage::title).toArray(String[]::new))
+                .bind("authors", updates.stream().map(BookUpdatedMessage::author).toArray(String[]::new))
+                .bind("prices", updates.stream().map(BookUpdatedMessage::price).toArray(Double[]::new))
+                .bind("versions", updates.stream().map(CatalogReplica::version).toArray(Integer[]::new))
+                .then()
+                .doOnSuccess(ignored -> updates.forEach(update -> remember(
+                        new Book(update.isbn(), update.title(), update.author(), update.price()), version(update))));
+    }
+
+    // Lookups fall back to the catalog until a snapshot has replaced whatever update was lost.
+    public void markStale() {
+        stale = true;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${polar.catalog-replica.snapshot-interval}")
+    public void refresh() {
+        if (!catalogReplicaProperties.enabled()) {
+            return;
+        }
+        if (!loaded) {
+            loadFromDatabase();
+        }
+        var seen = ConcurrentHashMap.<String>newKeySet();
+        databaseClient.sql("SELECT CAST(now() AS timestamp) AS started")
+                .map(row -> row.get("started", LocalDateTime.class))
+                .one()
+                .flatMap(started -> webClient.get()
+                        .uri(BOOKS_ROOT_API)
+                        .retrieve()
+                        .bodyToFlux(BookUpdatedMessage.class)
+                        .filter(CatalogReplica::isComplete)
+                        .doOnNext(update -> seen.add(update.isbn()))
+                        .buffer(catalogReplicaProperties.batchSize())
+                        .concatMap(this::apply)
+                        .then(Mono.defer(() -> removeMissing(seen, started))))
+                .timeout(catalogReplicaProperties.snapshotTimeout())
+                .doOnSuccess(ignored -> {
+                    loaded = true;
+                    stale = false;
+                    log.info("Catalog replica refreshed with {} books", books.size());
+                })
+                .doOnError(e -> log.warn("Failed to load the catalog snapshot, retrying on next refresh", e))
+                .onErrorResume(e -> Mono.empty())
+                .block();
+    }
+
+    @Scheduled(fixedDelayString = "${polar.catalog-replica.resync-interval}")
+    public void resynchronize() {
+        if (stale) {
+            refresh();
+        }
+    }
+
+    // Books the snapshot no longer lists were deleted from the catalog. Rows written since the snapshot
+    // started may be newer than it, and an empty snapshot is more likely a catalog fault than an empty catalog.
+    private Mono<Void> removeMissing(Set<String> seen, LocalDateTime started) {
+        if (seen.isEmpty()) {
+            return Mono.empty();
+        }
+        return databaseClient.sql("""
+                        DELETE FROM catalog_books
+                        WHERE updated_date < :started AND NOT (isbn = ANY(CAST(:isbns AS varchar[])))
+                        RETURNING isbn
+                        """)
+                .bind("started", started)
+                .bind("isbns", seen.toArray(String[]::new))
+                .map(row -> row.get("isbn", String.class))
+                .all()
+                .doOnNext(books::remove)
+                .count()
+                .doOnNext(removed -> {
+                    if (removed > 0) {
+                        log.info("Removed {} books no longer in the catalog from the replica", removed);
+                    }
+                })
+                .then();
+    }
+
+    private void loadFromDatabase() {
+        databaseClient.sql("SELECT isbn, title, author, price, version FROM catalog_books")
+                .map(row -> new Entry(
+                        new Book(row.get("isbn", String.class), row.get("title", String.class),
+                                row.get("author", String.class), row.get("price", Double.class)),
+                        row.get("version", Integer.class)))
+                .all()
+                .doOnNext(entry -> remember(entry.book(), entry.version()))
+                .then()
+                .doOnSuccess(ignored -> loaded = !books.isEmpty())
+                .doOnError(e -> log.warn("Failed to load the catalog replica from the database", e))
+                .onErrorResume(e -> Mono.empty())
+                .block();
+    }
+
+    private void remember(Book book, int version) {
+        books.merge(book.isbn(), new Entry(book, version),
+                (current, update) -> update.version() >= current.version() ? update : current);
+    }
+
+    static boolean isComplete(BookUpdatedMessage update) {
+        return update.isbn() != null && update.title() != null && update.author() != null && update.price() != null;
+    }
+
+    private static int version(BookUpdatedMessage update) {
+        return update.version() != null ? update.version() : 0;
+    }
+
+    private record Entry(Book book, int version) {
+    }
+}
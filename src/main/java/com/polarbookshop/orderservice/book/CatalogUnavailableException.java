@@ -0,0 +1,7 @@
+package com.polarbookshop.orderservice.book;
+
+public class CatalogUnavailableException extends RuntimeException {
+    public CatalogUnavailableException(String isbn, Throwable cause) {
+        super("The catalog could not be reached to look up the book with ISBN " + isbn, cause);
+    }
+}
@@ -0,0 +1,40 @@
+package com.polarbookshop.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "polar.admission")
+public record AdmissionProperties(
+        boolean enabled,
+
+        @Min(1)
+        int initialLimit,
+
+        @Min(1)
+        int minLimit,
+
+        @Min(1)
+        int maxLimit,
+
+        @NotNull
+        Duration latencyThreshold,
+
+        @DecimalMin("0.1")
+        @DecimalMax("0.99")
+        double backoffRatio,
+
+        @DecimalMin("0.1")
+        double userRequestsPerSecond,
+
+        @Min(1)
+        int userBurst,
+
+        @NotNull
+        Duration userIdleTimeout
+) {
+}
@@ -0,0 +1,20 @@
+package com.polarbookshop.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "polar.archive")
+public record ArchiveProperties(
+        @NotNull
+        Duration horizon,
+
+        @Min(1)
+        int batchSize,
+
+        @Min(0)
+        int partitionsAhead
+) {
+}
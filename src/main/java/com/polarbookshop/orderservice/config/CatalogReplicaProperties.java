@@ -0,0 +1,28 @@
+package com.polarbookshop.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "polar.catalog-replica")
+public record CatalogReplicaProperties(
+        boolean enabled,
+
+        @NotNull
+        Duration snapshotTimeout,
+
+        @Min(1)
+        int batchSize,
+
+        @NotNull
+        Duration batchWindow,
+
+        @Min(0)
+        int retries,
+
+        @NotNull
+        Duration retryBackoff
+) {
+}
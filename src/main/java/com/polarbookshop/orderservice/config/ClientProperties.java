@@ -4,12 +4,51 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import javax.validation.constraints.NotNull;
 import java.net.URI;
+import java.time.Duration;
 
 @ConfigurationProperties(prefix = "polar")
 public record ClientProperties (
         @NotNull
-        URI catalogServiceUri
+        URI catalogServiceUri,
+
+        @NotNull
+        CatalogCache catalogCache,
+
+        @NotNull
+        CatalogClient catalogClient,
+
+        @NotNull
+        CatalogCircuitBreaker catalogCircuitBreaker
 ) {
 
-};
+    public record CatalogCache(
+            Duration ttl,
+            Duration negativeTtl,
+            long maxSize
+    ) {
+    }
 
+    public record CatalogClient(
+            Duration totalTimeout,
+            Duration attemptTimeoutMin,
+            Duration attemptTimeoutMax,
+            long timeoutMultiplier,
+            int retries,
+            Duration retryBackoff,
+            boolean hedgingEnabled,
+            Duration hedgeDelayMin,
+            int lookupConcurrency
+    ) {
+    }
+
+    public record CatalogCircuitBreaker(
+            float failureRateThreshold,
+            float slowCallRateThreshold,
+            Duration slowCallDurationThreshold,
+            int slidingWindowSize,
+            int minimumNumberOfCalls,
+            Duration waitDurationInOpenState,
+            int permittedCallsInHalfOpenState
+    ) {
+    }
+};
@@ -1,7 +1,15 @@
 package com.polarbookshop.orderservice.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.domain.ReactiveAuditorAware;
 import org.springframework.data.r2dbc.config.EnableR2dbcAuditing;
 import org.springframework.security.core.Authentication;
@@ -20,4 +28,55 @@ public class DataConfig {
                 .filter(Authentication::isAuthenticated)
                 .map(Authentication::getName);
     }
+
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnProperty("polar.r2dbc.replica.url")
+    ConnectionPool primaryConnectionFactory(R2dbcProperties r2dbcProperties) {
+        var pool = r2dbcProperties.getPool();
+        var connectionFactory = ConnectionFactoryBuilder.withUrl(r2dbcProperties.getUrl())
+                .username(r2dbcProperties.getUsername())
+                .password(r2dbcProperties.getPassword())
+                .build();
+        var configuration = ConnectionPoolConfiguration.builder(connectionFactory)
+                .name("primary")
+                .initialSize(pool.getInitialSize())
+                .maxSize(pool.getMaxSize())
+                .maxIdleTime(pool.getMaxIdleTime());
+        if (pool.getMaxCreateConnectionTime() != null) {
+            configuration.maxCreateConnectionTime(pool.getMaxCreateConnectionTime());
+        }
+        return new ConnectionPool(configuration.build());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnProperty("polar.r2dbc.replica.url")
+    ConnectionPool replicaConnectionFactory(ReplicaProperties replicaProperties, R2dbcProperties r2dbcProperties) {
+        var pool = r2dbcProperties.getPool();
+        var connectionFactory = ConnectionFactoryBuilder.withUrl(replicaProperties.url())
+                .username(replicaProperties.username())
+                .password(replicaProperties.password())
+                .build();
+        var configuration = ConnectionPoolConfiguration.builder(connectionFactory)
+                .name("replica")
+                .initialSize(replicaProperties.initialSize())
+                .maxSize(replicaProperties.maxSize())
+                .maxIdleTime(pool.getMaxIdleTime());
+        if (pool.getMaxCreateConnectionTime() != null) {
+            configuration.maxCreateConnectionTime(pool.getMaxCreateConnectionTime());
+        }
+        return new ConnectionPool(configuration.build());
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty("polar.r2dbc.replica.url")
+    ReplicaRoutingConnectionFactory connectionFactory(
+            @Qualifier("primaryConnectionFactory") ConnectionPool primaryConnectionFactory,
+            @Qualifier("replicaConnectionFactory") ConnectionPool replicaConnectionFactory,
+            ReplicaProperties replicaProperties,
+            MeterRegistry meterRegistry
+    ) {
+        return new ReplicaRoutingConnectionFactory(primaryConnectionFactory, replicaConnectionFactory,
+                replicaProperties.maxLag(), replicaProperties.lagCheckInterval(), meterRegistry);
+    }
 }
@@ -0,0 +1,29 @@
+package com.polarbookshop.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "polar.dispatch")
+public record DispatchProperties(
+        @Min(1)
+        int batchSize,
+
+        @NotNull
+        Duration batchWindow,
+
+        @Min(1)
+        int lanes,
+
+        @Min(1)
+        int lanePrefetch,
+
+        @Min(1)
+        int maxAttempts,
+
+        @NotNull
+        Duration parkTimeout
+) {
+}
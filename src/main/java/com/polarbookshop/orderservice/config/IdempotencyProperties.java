@@ -0,0 +1,23 @@
+package com.polarbookshop.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "polar.idempotency")
+public record IdempotencyProperties(
+        @NotNull
+        Duration ttl,
+
+        @NotNull
+        Duration cacheTtl,
+
+        @Min(1)
+        long cacheMaxSize,
+
+        @Min(1)
+        int cleanupBatchSize
+) {
+}
@@ -0,0 +1,18 @@
+package com.polarbookshop.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import javax.validation.constraints.Min;
+
+@ConfigurationProperties(prefix = "polar.intake")
+public record IntakeProperties(
+        @Min(1)
+        int capacity,
+
+        @Min(1)
+        int batchSize,
+
+        @Min(1)
+        int workers
+) {
+}
@@ -0,0 +1,24 @@
+package com.polarbookshop.orderservice.config;
+
+import io.prometheus.client.exemplars.tracer.common.SpanContextSupplier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    SpanContextSupplier requestTraceSpanContextSupplier() {
+        return new SpanContextSupplier() {
+            @Override
+            public String getTraceId() {
+                return RequestTrace.currentTraceId();
+            }
+
+            @Override
+            public String getSpanId() {
+                return RequestTrace.currentSpanId();
+            }
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package com.polarbookshop.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@ConfigurationProperties(prefix = "polar.orders")
+public record OrderProperties(
+        @Min(1)
+        int pageSize,
+
+        @Min(1)
+        int maxPageSize,
+
+        @NotNull
+        DegradedMode degradedMode,
+
+        @Min(1)
+        int pendingValidationBatchSize
+) {
+
+    public enum DegradedMode {
+        REJECT,
+        PENDING_VALIDATION
+    }
+}
@@ -0,0 +1,18 @@
+package com.polarbookshop.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "polar.order-updates")
+public record OrderUpdatesProperties(
+        boolean clusterNotifications,
+
+        @NotNull
+        Duration heartbeatInterval,
+
+        @NotNull
+        Duration reconnectBackoff
+) {
+}
@@ -0,0 +1,19 @@
+package com.polarbookshop.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "polar.outbox")
+public record OutboxProperties(
+        @Min(1)
+        int batchSize,
+
+        boolean publisherConfirms,
+
+        @NotNull
+        Duration confirmTimeout
+) {
+}
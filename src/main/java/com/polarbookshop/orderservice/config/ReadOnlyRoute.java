@@ -0,0 +1,20 @@
+package com.polarbookshop.orderservice.config;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public final class ReadOnlyRoute {
+
+    public static final String CONTEXT_KEY = ReadOnlyRoute.class.getName();
+
+    private ReadOnlyRoute() {
+    }
+
+    public static <T> Flux<T> readOnly(Flux<T> source) {
+        return source.contextWrite(context -> context.put(CONTEXT_KEY, true));
+    }
+
+    public static <T> Mono<T> readOnly(Mono<T> source) {
+        return source.contextWrite(context -> context.put(CONTEXT_KEY, true));
+    }
+}
@@ -0,0 +1,23 @@
+package com.polarbookshop.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "polar.recent-orders")
+public record RecentOrdersProperties(
+        boolean enabled,
+
+        @Min(1)
+        int ordersPerUser,
+
+        @NotNull
+        DataSize memoryBudget,
+
+        @NotNull
+        Duration ttl
+) {
+}
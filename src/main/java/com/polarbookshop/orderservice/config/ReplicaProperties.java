@@ -0,0 +1,17 @@
+package com.polarbookshop.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "polar.r2dbc.replica")
+public record ReplicaProperties(
+        String url,
+        String username,
+        String password,
+        int initialSize,
+        int maxSize,
+        Duration maxLag,
+        Duration lagCheckInterval
+) {
+}
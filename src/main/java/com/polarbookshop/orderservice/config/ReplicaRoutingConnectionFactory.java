@@ -0,0 +1,128 @@
+package com.polarbookshop.orderservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.r2dbc.connection.lookup.AbstractRoutingConnectionFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+
+public class ReplicaRoutingConnectionFactory extends AbstractRoutingConnectionFactory implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingConnectionFactory.class);
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    // A replica whose WAL receiver is not streaming has stopped receiving changes, however far it has replayed
+    // what it did receive. Without pg_read_all_stats the receiver's status is hidden, and a running receiver is
+    // taken to be streaming. Lag is zero once everything received has been replayed, so an idle primary does
+    // not show up as lag.
+    private static final String REPLICA_LAG_QUERY = """
+            SELECT EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE COALESCE(status, 'streaming') = 'streaming')
+                       AS streaming,
+                   CASE
+                       WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+                   END AS lag
+            """;
+
+    // Reads stay on the replica while a check has succeeded within this many check intervals, plus max-lag
+    // for the check itself to time out.
+    private static final int MISSED_CHECKS_TOLERATED = 3;
+
+    private final ConnectionFactory replica;
+    private final Duration maxLag;
+    private final Duration lagCheckInterval;
+    private final long lagCheckExpiryNanos;
+    // The check blocks for up to max-lag, so it runs on a thread of its own rather than holding up, or waiting
+    // behind, the jobs on the shared scheduler.
+    private final ThreadPoolTaskScheduler lagCheckScheduler;
+
+    private volatile boolean replicaInSync;
+    private volatile long lastLagCheckNanos;
+    private volatile double replicaLagSeconds = Double.NaN;
+    private volatile ScheduledFuture<?> lagCheck;
+
+    public ReplicaRoutingConnectionFactory(ConnectionFactory primary, ConnectionFactory replica, Duration maxLag,
+                                           Duration lagCheckInterval, MeterRegistry meterRegistry) {
+        this.replica = replica;
+        this.maxLag = maxLag;
+        this.lagCheckInterval = lagCheckInterval;
+        this.lagCheckExpiryNanos = lagCheckInterval.multipliedBy(MISSED_CHECKS_TOLERATED).plus(maxLag).toNanos();
+        this.lagCheckScheduler = new ThreadPoolTaskScheduler();
+        this.lagCheckScheduler.setThreadNamePrefix("replica-lag-check-");
+        setTargetConnectionFactories(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetConnectionFactory(primary);
+        meterRegistry.gauge("r2dbc.replica.lag", this, factory -> factory.replicaLagSeconds);
+        meterRegistry.gauge("r2dbc.replica.in.sync", this, factory -> factory.isReplicaInSync() ? 1 : 0);
+    }
+
+    @Override
+    protected Mono<Object> determineCurrentLookupKey() {
+        return Mono.deferContextual(context -> Mono.just(
+                isReplicaInSync() && context.getOrDefault(ReadOnlyRoute.CONTEXT_KEY, false) ? REPLICA : PRIMARY));
+    }
+
+    @Override
+    public void start() {
+        lagCheckScheduler.initialize();
+        lagCheck = lagCheckScheduler.scheduleWithFixedDelay(this::checkReplicaLag, lagCheckInterval);
+    }
+
+    @Override
+    public void stop() {
+        if (lagCheck != null) {
+            lagCheckScheduler.shutdown();
+            lagCheck = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return lagCheck != null;
+    }
+
+    public void checkReplicaLag() {
+        var lag = Mono.usingWhen(replica.create(), this::queryLag, Connection::close)
+                .timeout(maxLag)
+                .doOnError(e -> log.warn("Replica lag check failed, routing reads to the primary", e))
+                .onErrorResume(e -> Mono.empty())
+                .blockOptional();
+        updateLag(lag);
+    }
+
+    void updateLag(Optional<Double> lag) {
+        var inSync = lag.map(seconds -> seconds <= maxLag.toMillis() / 1000.0).orElse(false);
+        if (inSync != replicaInSync) {
+            log.info("Routing read-only queries to the {}", inSync ? REPLICA : PRIMARY);
+        }
+        replicaLagSeconds = lag.orElse(Double.NaN);
+        if (lag.isPresent()) {
+            lastLagCheckNanos = System.nanoTime();
+        }
+        replicaInSync = inSync;
+    }
+
+    // The verdict of a check that has not been repeated for a while, because the replica hangs or the check
+    // thread is starved, says nothing about the replica today: reads go back to the primary until one succeeds.
+    private boolean isReplicaInSync() {
+        return replicaInSync && System.nanoTime() - lastLagCheckNanos < lagCheckExpiryNanos;
+    }
+
+    private Mono<Double> queryLag(Connection connection) {
+        return Mono.from(connection.createStatement(REPLICA_LAG_QUERY).execute())
+                .flatMap(result -> Mono.from(result.map((row, metadata) ->
+                        Boolean.TRUE.equals(row.get("streaming", Boolean.class))
+                                ? row.get("lag", Number.class).doubleValue()
+                                : Double.POSITIVE_INFINITY)));
+    }
+}
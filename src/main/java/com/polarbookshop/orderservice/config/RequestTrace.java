@@ -0,0 +1,35 @@
+package com.polarbookshop.orderservice.config;
+
+public final class RequestTrace {
+
+    public static final String CONTEXT_KEY = RequestTrace.class.getName();
+
+    private static final ThreadLocal<String[]> CURRENT = new ThreadLocal<>();
+
+    private RequestTrace() {
+    }
+
+    public static String currentTraceId() {
+        var current = CURRENT.get();
+        return current != null ? current[0] : null;
+    }
+
+    public static String currentSpanId() {
+        var current = CURRENT.get();
+        return current != null ? current[1] : null;
+    }
+
+    public static void runWith(String traceId, String spanId, Runnable action) {
+        if (traceId == null) {
+            action.run();
+            return;
+        }
+        var previous = CURRENT.get();
+        CURRENT.set(new String[] { traceId, spanId });
+        try {
+            action.run();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.polarbookshop.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "polar.stats")
+public record StatsProperties(
+        @NotNull
+        Duration defaultWindow,
+
+        @NotNull
+        Duration maxWindow,
+
+        @Min(1)
+        int defaultTop,
+
+        @Min(1)
+        int maxTop
+) {
+}
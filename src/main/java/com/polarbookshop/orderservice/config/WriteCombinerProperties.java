@@ -0,0 +1,25 @@
+package com.polarbookshop.orderservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "polar.write-combiner")
+public record WriteCombinerProperties(
+        boolean enabled,
+
+        @Min(1)
+        int batchSize,
+
+        @NotNull
+        Duration batchWindow,
+
+        @Min(1)
+        int capacity,
+
+        @Min(1)
+        int concurrency
+) {
+}
@@ -0,0 +1,27 @@
+package com.polarbookshop.orderservice.domain;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+public interface BatchOrderRepository {
+    Flux<Order> insertAll(List<Order> orders);
+
+    Flux<Order> insertAll(List<Order> orders, List<UUID> references);
+
+    Flux<Order> markDispatched(Collection<Long> orderIds);
+
+    Mono<OrderListVersion> findListVersion(String userId);
+
+    Flux<OrderEvent> findEvents(Long orderId, String userId);
+
+    <T> Flux<T> findRowsByCreatedByBefore(String userId, LocalDateTime createdDate, Long id, int limit,
+                                          BiFunction<Row, RowMetadata, T> mapper);
+}
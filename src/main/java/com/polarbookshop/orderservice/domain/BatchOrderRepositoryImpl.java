@@ -0,0 +1,215 @@
+package com.polarbookshop.orderservice.domain;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.springframework.data.domain.ReactiveAuditorAware;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+class BatchOrderRepositoryImpl implements BatchOrderRepository {
+
+    private static final String INSERT_ORDERS = "INSERT INTO orders (book_isbn, book_name, book_price, quantity, status, "
+            + "created_date, last_modified_date, version, created_by, last_modified_by, reference) VALUES ";
+
+    private final DatabaseClient databaseClient;
+    private final R2dbcConverter converter;
+    private final ReactiveAuditorAware<String> auditorAware;
+
+    BatchOrderRepositoryImpl(DatabaseClient databaseClient, R2dbcConverter converter,
+                             ReactiveAuditorAware<String> auditorAware) {
+        this.databaseClient = databaseClient;
+        this.converter = converter;
+        this.auditorAware = auditorAware;
+    }
+
+    @Override
+    public Flux<Order> insertAll(List<Order> orders) {
+        return insertAll(orders, null);
+    }
+
+    @Override
+    public Flux<Order> insertAll(List<Order> orders, List<UUID> references) {
+        if (orders.isEmpty()) {
+            return Flux.empty();
+        }
+        return auditorAware.getCurrentAuditor()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMapMany(auditor -> {
+                    var now = Instant.now();
+                    var auditedOrders = orders.stream()
+                            .map(order -> audit(order, now, auditor.orElse(null)))
+                            .toList();
+                    return insert(auditedOrders, references);
+                });
+    }
+
+    @Override
+    public Flux<Order> markDispatched(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return Flux.empty();
+        }
+        // The event insert is the transition; the unique (order_id, status) key absorbs redeliveries
+        // without taking the row lock, and only orders that gained an event touch the projection.
+        // Only accepted orders can be dispatched: pending and rejected ones are left untouched.
+        return databaseClient.sql("""
+                        WITH dispatched AS (
+                            INSERT INTO order_events (order_id, status, created_date)
+                            SELECT id, 'DISPATCHED', now()
+                            FROM orders
+                            WHERE id = ANY(:ids) AND status = 'ACCEPTED'
+                            ON CONFLICT (order_id, status) DO NOTHING
+                            RETURNING order_id, created_date
+                        )
+                        UPDATE orders
+                        SET status = 'DISPATCHED', last_modified_date = dispatched.created_date, version = version + 1
+                        FROM dispatched
+                        WHERE orders.id = dispatched.order_id
+                        RETURNING orders.*
+                        """)
+                .bind("ids", orderIds.toArray(Long[]::new))
+                .map((row, metadata) -> converter.read(Order.class, row, metadata))
+                .all();
+    }
+
+    @Override
+    public Mono<OrderListVersion> findListVersion(String userId) {
+        return databaseClient.sql("""
+                        SELECT count(*) AS order_count, max(last_modified_date) AS last_modified_date
+                        FROM orders_all
+                        WHERE created_by = :userId
+                        """)
+                .bind("userId", userId)
+                .map(row -> new OrderListVersion(
+                        userId,
+                        row.get("order_count", Long.class),
+                        row.get("last_modified_date", Instant.class)))
+                .one();
+    }
+
+    @Override
+    public Flux<OrderEvent> findEvents(Long orderId, String userId) {
+        return databaseClient.sql("""
+                        SELECT e.order_id, e.status, e.created_date
+                        FROM order_events e
+                        WHERE e.order_id = :orderId
+                          AND EXISTS (SELECT 1 FROM orders_all o WHERE o.id = e.order_id AND o.created_by = :userId)
+                        ORDER BY e.created_date, e.id
+                        """)
+                .bind("orderId", orderId)
+                .bind("userId", userId)
+                .map(row -> new OrderEvent(
+                        row.get("order_id", Long.class),
+                        OrderStatus.valueOf(row.get("status", String.class)),
+                        row.get("created_date", Instant.class)))
+                .all();
+    }
+
+    @Override
+    public <T> Flux<T> findRowsByCreatedByBefore(String userId, LocalDateTime createdDate, Long id, int limit,
+                                                 BiFunction<Row, RowMetadata, T> mapper) {
+        if (createdDate == null) {
+            return databaseClient.sql("""
+                            SELECT * FROM orders_all
+                            WHERE created_by = :userId
+                            ORDER BY created_date DESC, id DESC
+                            LIMIT :limit
+                            """)
+                    .bind("userId", userId)
+                    .bind("limit", limit)
+                    .map(mapper)
+                    .all();
+        }
+        return databaseClient.sql("""
+                        SELECT * FROM orders_all
+                        WHERE created_by = :userId
+                          AND (created_date, id) < (:createdDate, :id)
+                        ORDER BY created_date DESC, id DESC
+                        LIMIT :limit
+                        """)
+                .bind("userId", userId)
+                .bind("createdDate", createdDate)
+                .bind("id", id)
+                .bind("limit", limit)
+                .map(mapper)
+                .all();
+    }
+
+    private Flux<Order> insert(List<Order> orders, List<UUID> references) {
+        var sql = new StringBuilder(INSERT_ORDERS);
+        for (int i = 0; i < orders.size(); i++) {
+            sql.append(i == 0 ? "" : ", ")
+                    .append("(:bookIsbn%1$d, :bookName%1$d, :bookPrice%1$d, :quantity%1$d, :status%1$d, ".formatted(i))
+                    .append(":createdDate%1$d, :lastModifiedDate%1$d, :version%1$d, :createdBy%1$d, :lastModifiedBy%1$d, :reference%1$d)".formatted(i));
+        }
+        sql.append(" RETURNING id");
+
+        var spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < orders.size(); i++) {
+            var order = orders.get(i);
+            spec = bind(spec, "bookIsbn" + i, order.bookIsbn(), String.class);
+            spec = bind(spec, "bookName" + i, order.bookName(), String.class);
+            spec = bind(spec, "bookPrice" + i, order.bookPrice(), Double.class);
+            spec = bind(spec, "quantity" + i, order.quantity(), Integer.class);
+            spec = bind(spec, "status" + i, order.status().name(), String.class);
+            spec = bind(spec, "createdDate" + i, order.createdDate(), Instant.class);
+            spec = bind(spec, "lastModifiedDate" + i, order.lastModifiedDate(), Instant.class);
+            spec = bind(spec, "version" + i, order.version(), Integer.class);
+            spec = bind(spec, "createdBy" + i, order.createdBy(), String.class);
+            spec = bind(spec, "lastModifiedBy" + i, order.lastModifiedBy(), String.class);
+            spec = bind(spec, "reference" + i, references != null ? references.get(i) : null, UUID.class);
+        }
+
+        return spec.map(row -> row.get("id", Long.class))
+                .all()
+                .zipWithIterable(orders, (id, order) -> withId(order, id));
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec,
+                                                          String name, Object value, Class<?> type) {
+        return value != null ? spec.bind(name, value) : spec.bindNull(name, type);
+    }
+
+    private static Order audit(Order order, Instant now, String auditor) {
+        var createdBy = order.createdBy() != null ? order.createdBy() : auditor;
+        return new Order(
+                null,
+                order.bookIsbn(),
+                order.bookName(),
+                order.bookPrice(),
+                order.quantity(),
+                order.status(),
+                now,
+                now,
+                1,
+                createdBy,
+                createdBy
+        );
+    }
+
+    private static Order withId(Order order, Long id) {
+        return new Order(
+                id,
+                order.bookIsbn(),
+                order.bookName(),
+                order.bookPrice(),
+                order.quantity(),
+                order.status(),
+                order.createdDate(),
+                order.lastModifiedDate(),
+                order.version(),
+                order.createdBy(),
+                order.lastModifiedBy()
+        );
+    }
+}
@@ -0,0 +1,7 @@
+package com.polarbookshop.orderservice.domain;
+
+public record IdempotencyKey(
+        String key,
+        String requestFingerprint
+) {
+}
@@ -0,0 +1,7 @@
+package com.polarbookshop.orderservice.domain;
+
+public class IdempotencyKeyMismatchException extends RuntimeException {
+    public IdempotencyKeyMismatchException(String key) {
+        super("The idempotency key " + key + " was already used for a different request.");
+    }
+}
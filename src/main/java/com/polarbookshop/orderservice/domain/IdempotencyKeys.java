@@ -0,0 +1,59 @@
+package com.polarbookshop.orderservice.domain;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+@Component
+public class IdempotencyKeys {
+
+    private final DatabaseClient databaseClient;
+
+    public IdempotencyKeys(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Recorded> find(String userId, String key) {
+        return databaseClient.sql("""
+                        SELECT request_fingerprint, order_id FROM idempotency_keys
+                        WHERE created_by = :userId AND idempotency_key = :key
+                        """)
+                .bind("userId", userId)
+                .bind("key", key)
+                .map(row -> new Recorded(row.get("request_fingerprint", String.class), row.get("order_id", Long.class)))
+                .one();
+    }
+
+    public Mono<Void> record(Order order, IdempotencyKey idempotencyKey) {
+        return databaseClient.sql("""
+                        INSERT INTO idempotency_keys (created_by, idempotency_key, request_fingerprint, order_id, created_date)
+                        VALUES (:userId, :key, :fingerprint, :orderId, now())
+                        """)
+                .bind("userId", order.createdBy())
+                .bind("key", idempotencyKey.key())
+                .bind("fingerprint", idempotencyKey.requestFingerprint())
+                .bind("orderId", order.id())
+                .then();
+    }
+
+    public Mono<Long> removeExpired(Instant createdBefore, int limit) {
+        return databaseClient.sql("""
+                        DELETE FROM idempotency_keys
+                        WHERE (created_by, idempotency_key) IN (
+                            SELECT created_by, idempotency_key FROM idempotency_keys
+                            WHERE created_date < :createdBefore
+                            LIMIT :limit
+                        )
+                        """)
+                .bind("createdBefore", createdBefore)
+                .bind("limit", limit)
+                .fetch()
+                .rowsUpdated()
+                .map(Integer::longValue);
+    }
+
+    public record Recorded(String requestFingerprint, Long orderId) {
+    }
+}
@@ -0,0 +1,125 @@
+package com.polarbookshop.orderservice.domain;
+
+import com.polarbookshop.orderservice.config.ArchiveProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Pattern;
+
+@Component
+public class OrderArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderArchiver.class);
+    private static final String PARTITION_PREFIX = "orders_p";
+    private static final Pattern PARTITION_NAME = Pattern.compile(PARTITION_PREFIX + "[0-9]{6}");
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final DatabaseClient databaseClient;
+    private final ArchiveProperties archiveProperties;
+
+    public OrderArchiver(DatabaseClient databaseClient, ArchiveProperties archiveProperties) {
+        this.databaseClient = databaseClient;
+        this.archiveProperties = archiveProperties;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${polar.archive.partition-interval}")
+    public void createPartitions() {
+        databaseClient.sql("SELECT create_orders_partitions(:monthsAhead)")
+                .bind("monthsAhead", archiveProperties.partitionsAhead())
+                .then()
+                .doOnError(e -> log.warn("Failed to create upcoming order partitions, retrying on next run", e))
+                .onErrorResume(e -> Mono.empty())
+                .block();
+    }
+
+    @Scheduled(fixedDelayString = "${polar.archive.archive-interval}")
+    public void archiveOrders() {
+        var horizon = Instant.now().minus(archiveProperties.horizon());
+        long archived = 0;
+        long moved;
+        do {
+            moved = moveBatch(horizon)
+                    .onErrorResume(e -> {
+                        log.warn("Failed to archive orders, retrying on next run", e);
+                        return Mono.just(0L);
+                    })
+                    .blockOptional()
+                    .orElse(0L);
+            archived += moved;
+        } while (moved == archiveProperties.batchSize());
+
+        var dropped = databaseClient.sql("SELECT find_empty_orders_partitions(CAST(:horizon AS timestamp)) AS name")
+                .bind("horizon", horizon)
+                .map(row -> row.get("name", String.class))
+                .all()
+                .concatMap(this::dropPartition)
+                .filter(Boolean::booleanValue)
+                .count()
+                .onErrorResume(e -> {
+                    log.warn("Failed to drop empty order partitions, retrying on next run", e);
+                    return Mono.just(0L);
+                })
+                .blockOptional()
+                .orElse(0L);
+        if (archived > 0 || dropped > 0) {
+            log.info("Archived {} orders and dropped {} empty partitions older than {}", archived, dropped, horizon);
+        }
+    }
+
+    // A concurrent detach only takes SHARE UPDATE EXCLUSIVE on orders, so writers are not blocked, but it cannot
+    // run in a transaction block. A partition that gained rows in the meantime is attached again.
+    private Mono<Boolean> dropPartition(String partition) {
+        if (!PARTITION_NAME.matcher(partition).matches()) {
+            return Mono.just(false);
+        }
+        return databaseClient.sql("ALTER TABLE orders DETACH PARTITION " + partition + " CONCURRENTLY")
+                .then()
+                .then(databaseClient.sql("SELECT NOT EXISTS (SELECT 1 FROM " + partition + ") AS empty")
+                        .map(row -> row.get("empty", Boolean.class))
+                        .one())
+                .flatMap(empty -> empty
+                        ? databaseClient.sql("DROP TABLE " + partition).then().thenReturn(true)
+                        : attachPartition(partition).thenReturn(false));
+    }
+
+    private Mono<Void> attachPartition(String partition) {
+        var month = YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_MONTH);
+        log.warn("Partition {} was written to while being detached, attaching it again", partition);
+        return databaseClient.sql("ALTER TABLE orders ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')"
+                        .formatted(partition, month.atDay(1), month.plusMonths(1).atDay(1)))
+                .then();
+    }
+
+    private Mono<Long> moveBatch(Instant horizon) {
+        return databaseClient.sql("""
+                        WITH moved AS (
+                            DELETE FROM orders
+                            WHERE (id, created_date) IN (
+                                SELECT id, created_date FROM orders
+                                WHERE created_date < CAST(:horizon AS timestamp)
+                                  AND status IN ('DISPATCHED', 'REJECTED')
+                                LIMIT :limit
+                                FOR UPDATE SKIP LOCKED
+                            )
+                            RETURNING id, book_isbn, book_name, book_price, quantity, status, created_date,
+                                      last_modified_date, version, created_by, last_modified_by, reference
+                        )
+                        INSERT INTO orders_archive (id, book_isbn, book_name, book_price, quantity, status,
+                                                    created_date, last_modified_date, version, created_by,
+                                                    last_modified_by, reference)
+                        SELECT * FROM moved
+                        """)
+                .bind("horizon", horizon)
+                .bind("limit", archiveProperties.batchSize())
+                .fetch()
+                .rowsUpdated()
+                .map(Integer::longValue);
+    }
+}
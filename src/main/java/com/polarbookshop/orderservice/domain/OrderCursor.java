@@ -0,0 +1,37 @@
+package com.polarbookshop.orderservice.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+public record OrderCursor(
+        Instant createdDate,
+        Long id
+) {
+    private static final String SEPARATOR = "|";
+
+    public static OrderCursor of(Order order) {
+        return new OrderCursor(order.createdDate(), order.id());
+    }
+
+    public static OrderCursor decode(String value) {
+        try {
+            var decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            var separatorIndex = decoded.indexOf(SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new IllegalArgumentException("Malformed order cursor: " + value);
+            }
+            return new OrderCursor(
+                    Instant.parse(decoded.substring(0, separatorIndex)),
+                    Long.valueOf(decoded.substring(separatorIndex + 1)));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed order cursor: " + value, e);
+        }
+    }
+
+    public String encode() {
+        var value = createdDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,10 @@
+package com.polarbookshop.orderservice.domain;
+
+import java.time.Instant;
+
+public record OrderEvent(
+        Long orderId,
+        OrderStatus status,
+        Instant createdDate
+) {
+}
@@ -0,0 +1,95 @@
+package com.polarbookshop.orderservice.domain;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.polarbookshop.orderservice.config.IdempotencyProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+@Component
+public class OrderIdempotency {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderIdempotency.class);
+    private static final String CACHE_NAME = "orders.idempotency";
+
+    private final OrderService orderService;
+    private final IdempotencyKeys idempotencyKeys;
+    private final IdempotencyProperties idempotencyProperties;
+    private final AsyncCache<CacheKey, IdempotentOrder> cache;
+
+    public OrderIdempotency(OrderService orderService, IdempotencyKeys idempotencyKeys,
+                            IdempotencyProperties idempotencyProperties, MeterRegistry meterRegistry) {
+        this.orderService = orderService;
+        this.idempotencyKeys = idempotencyKeys;
+        this.idempotencyProperties = idempotencyProperties;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(idempotencyProperties.cacheMaxSize())
+                .expireAfterWrite(idempotencyProperties.cacheTtl().compareTo(idempotencyProperties.ttl()) < 0
+                        ? idempotencyProperties.cacheTtl()
+                        : idempotencyProperties.ttl())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), CACHE_NAME);
+    }
+
+    public Mono<Order> submitOrder(String userId, String key, String isbn, int quantity) {
+        var idempotencyKey = new IdempotencyKey(key, fingerprint(isbn, quantity));
+        var cacheKey = new CacheKey(userId, key);
+        // Concurrent duplicates share the first in-flight submission. The loader runs detached
+        // from the caller, so it carries the caller's context (security, trace) explicitly.
+        return Mono.deferContextual(context -> Mono.fromFuture(cache.get(cacheKey, (k, executor) ->
+                                resolve(k, idempotencyKey, isbn, quantity).contextWrite(context).toFuture())
+                        .copy()))
+                .flatMap(result -> result.requestFingerprint().equals(idempotencyKey.requestFingerprint())
+                        ? Mono.just(result.order())
+                        : Mono.error(new IdempotencyKeyMismatchException(key)));
+    }
+
+    @Scheduled(fixedDelayString = "${polar.idempotency.cleanup-interval}")
+    public void removeExpiredKeys() {
+        var createdBefore = Instant.now().minus(idempotencyProperties.ttl());
+        long removed;
+        do {
+            removed = idempotencyKeys.removeExpired(createdBefore, idempotencyProperties.cleanupBatchSize())
+                    .onErrorResume(e -> {
+                        log.warn("Failed to remove expired idempotency keys, retrying on next run", e);
+                        return Mono.just(0L);
+                    })
+                    .blockOptional()
+                    .orElse(0L);
+        } while (removed == idempotencyProperties.cleanupBatchSize());
+    }
+
+    private Mono<IdempotentOrder> resolve(CacheKey cacheKey, IdempotencyKey idempotencyKey, String isbn, int quantity) {
+        return findRecorded(cacheKey)
+                .switchIfEmpty(Mono.defer(() -> orderService.submitOrder(isbn, quantity, idempotencyKey)
+                        .map(order -> new IdempotentOrder(idempotencyKey.requestFingerprint(), order))
+                        .onErrorResume(DataIntegrityViolationException.class, e -> findRecorded(cacheKey))));
+    }
+
+    private Mono<IdempotentOrder> findRecorded(CacheKey cacheKey) {
+        return idempotencyKeys.find(cacheKey.userId(), cacheKey.key())
+                .flatMap(recorded -> orderService.getOrder(cacheKey.userId(), recorded.orderId())
+                        .map(order -> new IdempotentOrder(recorded.requestFingerprint(), order)));
+    }
+
+    private static String fingerprint(String isbn, int quantity) {
+        return DigestUtils.md5DigestAsHex((isbn + "|" + quantity).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private record CacheKey(String userId, String key) {
+    }
+
+    private record IdempotentOrder(String requestFingerprint, Order order) {
+    }
+}
@@ -0,0 +1,156 @@
+package com.polarbookshop.orderservice.domain;
+
+import com.polarbookshop.orderservice.config.IntakeProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class OrderIntake implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderIntake.class);
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(200);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final OrderService orderService;
+    private final OrderMetrics orderMetrics;
+    private final IntakeProperties intakeProperties;
+    private final BlockingQueue<QueuedOrder> queue;
+    private final Map<UUID, String> queuedReferences = new ConcurrentHashMap<>();
+    private final Counter rejectedOrders;
+    private final Counter failedOrders;
+
+    private volatile boolean running;
+    private ExecutorService workers;
+
+    public OrderIntake(OrderService orderService, OrderMetrics orderMetrics, IntakeProperties intakeProperties,
+                       MeterRegistry meterRegistry) {
+        this.orderService = orderService;
+        this.orderMetrics = orderMetrics;
+        this.intakeProperties = intakeProperties;
+        this.queue = new ArrayBlockingQueue<>(intakeProperties.capacity());
+        this.rejectedOrders = meterRegistry.counter("orders.intake.rejected");
+        this.failedOrders = meterRegistry.counter("orders.intake.failed");
+        meterRegistry.gaugeCollectionSize("orders.intake.queued", Tags.empty(), queue);
+    }
+
+    public Optional<UUID> enqueue(OrderLine line, String createdBy) {
+        var queued = new QueuedOrder(UUID.randomUUID(), line, createdBy);
+        queuedReferences.put(queued.reference(), createdBy);
+        if (!running || !queue.offer(queued)) {
+            queuedReferences.remove(queued.reference());
+            rejectedOrders.increment();
+            return Optional.empty();
+        }
+        return Optional.of(queued.reference());
+    }
+
+    public boolean isQueued(UUID reference, String userId) {
+        return userId.equals(queuedReferences.get(reference));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        workers = Executors.newFixedThreadPool(intakeProperties.workers());
+        for (int i = 0; i < intakeProperties.workers(); i++) {
+            workers.execute(this::drain);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Order intake stopped with {} orders still queued", queue.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stop after the web server so requests accepted during graceful shutdown are still drained.
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void drain() {
+        var batch = new ArrayList<QueuedOrder>(intakeProperties.batchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                var first = queue.poll(POLL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, intakeProperties.batchSize() - 1);
+                submit(List.copyOf(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.forEach(queued -> queuedReferences.remove(queued.reference()));
+                batch.clear();
+            }
+        }
+    }
+
+    // The caller already holds a reference, so every queued order must end up as a row under it: a failed
+    // batch is retried order by order, and an order that still fails is recorded as rejected.
+    private void submit(List<QueuedOrder> batch) {
+        orderMetrics.time(OrderMetrics.INTAKE, "persist", orders -> OrderMetrics.SUCCESS,
+                        orderService.submitQueuedOrders(batch).collectList())
+                .retryWhen(Retry.backoff(3, Duration.ofMillis(100)))
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Failed to persist a batch of {} queued orders, retrying them one by one",
+                            batch.size(), e);
+                    return Flux.fromIterable(batch)
+                            .concatMap(queued -> orderService.submitQueuedOrders(List.of(queued))
+                                    .then()
+                                    .onErrorResume(error -> reject(queued, error)))
+                            .then();
+                })
+                .block();
+    }
+
+    private Mono<Void> reject(QueuedOrder queued, Throwable error) {
+        log.warn("Failed to persist queued order {}, recording it as rejected", queued.reference(), error);
+        return orderService.rejectQueuedOrders(List.of(queued))
+                .then()
+                .onErrorResume(e -> {
+                    log.error("Failed to record queued order {} of user {} for book {}, the order is lost",
+                            queued.reference(), queued.createdBy(), queued.line().isbn(), e);
+                    failedOrders.increment();
+                    return Mono.empty();
+                });
+    }
+}
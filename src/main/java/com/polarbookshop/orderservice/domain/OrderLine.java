@@ -0,0 +1,7 @@
+package com.polarbookshop.orderservice.domain;
+
+public record OrderLine(
+        String isbn,
+        int quantity
+) {
+}
@@ -0,0 +1,22 @@
+package com.polarbookshop.orderservice.domain;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+public record OrderListVersion(
+        String userId,
+        long count,
+        Instant lastModifiedDate
+) {
+    public String etag(OrderCursor after, int limit) {
+        var value = String.join("|",
+                userId,
+                String.valueOf(count),
+                String.valueOf(lastModifiedDate),
+                after != null ? after.encode() : "",
+                String.valueOf(limit));
+        return "\"" + DigestUtils.md5DigestAsHex(value.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -0,0 +1,77 @@
+package com.polarbookshop.orderservice.domain;
+
+import com.polarbookshop.orderservice.config.RequestTrace;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+@Component
+public class OrderMetrics {
+
+    public static final String SUBMIT = "orders.submit";
+    public static final String DISPATCH = "orders.dispatch";
+    public static final String INTAKE = "orders.intake";
+    public static final String OUTBOX_RELAY = "orders.outbox.relay";
+    public static final String WRITE_COMBINER = "orders.write.combiner";
+
+    public static final String SUCCESS = "success";
+    public static final String FOUND = "found";
+    public static final String NOT_FOUND = "not_found";
+    public static final String TIMEOUT = "timeout";
+    public static final String CIRCUIT_OPEN = "circuit_open";
+    public static final String ERROR = "error";
+
+    private final MeterRegistry meterRegistry;
+
+    public OrderMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> Mono<T> time(String name, String stage, Function<? super T, String> outcome, Mono<T> source) {
+        return Mono.deferContextual(context -> {
+            String traceId = context.getOrDefault(RequestTrace.CONTEXT_KEY, null);
+            var sample = Timer.start(meterRegistry);
+            return source
+                    .doOnSuccess(value -> record(sample, name, stage, value != null ? outcome.apply(value) : NOT_FOUND, traceId))
+                    .doOnError(e -> record(sample, name, stage, errorOutcome(e), traceId));
+        });
+    }
+
+    public void recordBatchSize(String name, int size) {
+        DistributionSummary.builder(name + ".batch.size")
+                .register(meterRegistry)
+                .record(size);
+    }
+
+    public static String orderOutcome(Order order) {
+        return order.status().name();
+    }
+
+    private void record(Timer.Sample sample, String name, String stage, String outcome, String traceId) {
+        var timer = Timer.builder(name)
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        RequestTrace.runWith(traceId, stage, () -> sample.stop(timer));
+    }
+
+    // Catalog failures arrive wrapped, and exhausted retries wrap the last attempt's error once more.
+    static String errorOutcome(Throwable error) {
+        for (var cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CallNotPermittedException) {
+                return CIRCUIT_OPEN;
+            }
+            if (cause instanceof TimeoutException) {
+                return TIMEOUT;
+            }
+        }
+        return ERROR;
+    }
+}
@@ -1,8 +1,49 @@
 package com.polarbookshop.orderservice.domain;
 
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-public interface OrderRepository extends ReactiveCrudRepository<Order, Long> {
+import java.time.Instant;
+import java.util.UUID;
+
+public interface OrderRepository extends ReactiveCrudRepository<Order, Long>, BatchOrderRepository {
+    @Override
+    @Query("SELECT * FROM orders_all")
+    Flux<Order> findAll();
+
+    @Query("SELECT * FROM orders_all WHERE created_by = :userId")
     Flux<Order> findAllByCreatedBy(String userId);
+
+    @Query("SELECT * FROM orders_all WHERE id = :id AND created_by = :userId")
+    Mono<Order> findByIdAndCreatedBy(Long id, String userId);
+
+    @Query("SELECT * FROM orders_all WHERE reference = :reference AND created_by = :userId")
+    Mono<Order> findByReferenceAndCreatedBy(UUID reference, String userId);
+
+    @Query("""
+            SELECT * FROM orders_all
+            WHERE created_by = :userId
+            ORDER BY created_date DESC, id DESC
+            LIMIT :limit
+            """)
+    Flux<Order> findFirstPageByCreatedBy(String userId, int limit);
+
+    @Query("""
+            SELECT * FROM orders_all
+            WHERE created_by = :userId
+              AND (created_date, id) < (CAST(:createdDate AS timestamp), :id)
+            ORDER BY created_date DESC, id DESC
+            LIMIT :limit
+            """)
+    Flux<Order> findPageByCreatedByBefore(String userId, Instant createdDate, Long id, int limit);
+
+    @Query("""
+            SELECT * FROM orders
+            WHERE status = 'PENDING_VALIDATION'
+            ORDER BY id
+            LIMIT :limit
+            """)
+    Flux<Order> findPendingValidation(int limit);
 }
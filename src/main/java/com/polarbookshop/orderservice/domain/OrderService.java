@@ -2,16 +2,31 @@ package com.polarbookshop.orderservice.domain;
 
 import com.polarbookshop.orderservice.book.Book;
 import com.polarbookshop.orderservice.book.BookClient;
-import com.polarbookshop.orderservice.order.event.OrderAcceptedMessage;
+import com.polarbookshop.orderservice.book.BookLookup;
+import com.polarbookshop.orderservice.book.CatalogUnavailableException;
+import com.polarbookshop.orderservice.config.OrderProperties;
+import com.polarbookshop.orderservice.config.ReadOnlyRoute;
 import com.polarbookshop.orderservice.order.event.OrderDispatchedMessage;
+import com.polarbookshop.orderservice.order.event.OrderOutbox;
+import com.polarbookshop.orderservice.order.event.OrderUpdates;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
 @Service
 public class OrderService {
 
@@ -19,29 +34,190 @@ public class OrderService {
 
     private final BookClient bookClient;
     private final OrderRepository orderRepo;
-    private final StreamBridge streamBridge;
+    private final OrderOutbox orderOutbox;
+    private final OrderUpdates orderUpdates;
+    private final RecentOrders recentOrders;
+    private final OrderStats orderStats;
+    private final IdempotencyKeys idempotencyKeys;
+    private final OrderProperties orderProperties;
+    private final OrderMetrics orderMetrics;
+    private final TransactionalOperator transactionalOperator;
+    private final OrderWriteCombiner orderWriteCombiner;
 
-    public OrderService(OrderRepository orderRepo, BookClient bookClient, StreamBridge streamBridge) {
+    public OrderService(OrderRepository orderRepo, BookClient bookClient, OrderOutbox orderOutbox,
+                        OrderUpdates orderUpdates, RecentOrders recentOrders, OrderStats orderStats,
+                        IdempotencyKeys idempotencyKeys, OrderProperties orderProperties,
+                        Optional<OrderWriteCombiner> orderWriteCombiner, OrderMetrics orderMetrics,
+                        TransactionalOperator transactionalOperator) {
         this.orderRepo = orderRepo;
         this.bookClient = bookClient;
-        this.streamBridge = streamBridge;
+        this.orderOutbox = orderOutbox;
+        this.orderUpdates = orderUpdates;
+        this.recentOrders = recentOrders;
+        this.orderStats = orderStats;
+        this.idempotencyKeys = idempotencyKeys;
+        this.orderProperties = orderProperties;
+        this.orderMetrics = orderMetrics;
+        this.transactionalOperator = transactionalOperator;
+        this.orderWriteCombiner = orderWriteCombiner.orElse(null);
+        orderWriteCombiner.ifPresent(combiner -> combiner.start(orders -> insertAll(orders, null)));
     }
 
     public Flux<Order> getAllOrders() {
-        return orderRepo.findAll();
+        return ReadOnlyRoute.readOnly(orderRepo.findAll());
+    }
+
+    // One keyset query per page rather than one cursor for the whole download, so a slow reader holds
+    // a pooled connection for a page at a time. Rows are handed to the mapper as they arrive.
+    public <T> Flux<T> streamOrders(String userId, BiFunction<Row, RowMetadata, T> mapper) {
+        var pageSize = orderProperties.pageSize();
+        return Flux.defer(() -> {
+            var position = new StreamPosition();
+            return Flux.defer(() -> {
+                        var createdDate = position.createdDate;
+                        var id = position.id;
+                        position.rows = 0;
+                        return ReadOnlyRoute.readOnly(orderRepo.findRowsByCreatedByBefore(userId, createdDate, id,
+                                pageSize, (row, metadata) -> {
+                                    position.advance(row);
+                                    return mapper.apply(row, metadata);
+                                }));
+                    })
+                    .repeat(() -> position.rows == pageSize);
+        });
     }
 
-    public Flux<Order> getAllOrders(String userId) {
-        return orderRepo.findAllByCreatedBy(userId);
+    public Flux<Order> getOrders(String userId, OrderCursor after, int limit) {
+        if (after == null) {
+            return recentOrders.firstPage(userId, limit)
+                    .orElseGet(() -> ReadOnlyRoute.readOnly(orderRepo.findFirstPageByCreatedBy(userId, limit)));
+        }
+        return ReadOnlyRoute.readOnly(
+                orderRepo.findPageByCreatedByBefore(userId, after.createdDate(), after.id(), limit));
+    }
+
+    public Mono<OrderListVersion> getOrderListVersion(String userId) {
+        return recentOrders.listVersion(userId)
+                .orElseGet(() -> ReadOnlyRoute.readOnly(orderRepo.findListVersion(userId)));
+    }
+
+    public Mono<Order> getOrder(String userId, Long id) {
+        return orderRepo.findByIdAndCreatedBy(id, userId);
+    }
+
+    public Mono<Order> getOrderByReference(String userId, UUID reference) {
+        return orderRepo.findByReferenceAndCreatedBy(reference, userId);
+    }
+
+    public Flux<OrderEvent> getOrderEvents(String userId, Long id) {
+        return ReadOnlyRoute.readOnly(orderRepo.findEvents(id, userId));
     }
 
-    @Transactional
     public Mono<Order> submitOrder(String isbn, int quantity) {
-        return bookClient.getBookByIsbn(isbn)
+        return submitOrder(isbn, quantity, null);
+    }
+
+    public Mono<Order> submitOrder(String isbn, int quantity, IdempotencyKey idempotencyKey) {
+        var submission = orderMetrics.time(OrderMetrics.SUBMIT, "catalog", book -> OrderMetrics.FOUND,
+                        bookClient.getBookByIsbn(isbn))
                 .map(book -> buildAcceptedOrder(book, quantity))
                 .defaultIfEmpty(buildRejectedOrder(isbn, quantity))
-                .flatMap(orderRepo::save)
-                .doOnNext(this::publishOrderAcceptedEvent);
+                .onErrorResume(CatalogUnavailableException.class,
+                        e -> Mono.just(buildUnvalidatedOrder(isbn, quantity)))
+                .flatMap(order -> orderMetrics.time(OrderMetrics.SUBMIT, "persist", OrderMetrics::orderOutcome,
+                        idempotencyKey == null ? write(order) : persist(order, idempotencyKey)))
+                .doOnNext(orderStats::recordCreated);
+        return orderMetrics.time(OrderMetrics.SUBMIT, "total", OrderMetrics::orderOutcome, submission);
+    }
+
+    public Flux<Order> submitOrders(List<OrderLine> lines) {
+        var isbns = lines.stream().map(OrderLine::isbn).toList();
+        return bookClient.getBooksByIsbn(isbns)
+                .map(books -> buildOrders(books, lines))
+                .flatMapMany(orders -> insertAll(orders, null))
+                .doOnNext(orderStats::recordCreated);
+    }
+
+    public Flux<Order> submitQueuedOrders(List<QueuedOrder> queuedOrders) {
+        var isbns = queuedOrders.stream().map(queued -> queued.line().isbn()).toList();
+        var references = queuedOrders.stream().map(QueuedOrder::reference).toList();
+        return bookClient.getBooksByIsbn(isbns)
+                .map(books -> queuedOrders.stream()
+                        .map(queued -> withCreatedBy(buildOrder(books.get(queued.line().isbn()), queued.line()),
+                                queued.createdBy()))
+                        .toList())
+                .flatMapMany(orders -> insertAll(orders, references))
+                .doOnNext(orderStats::recordCreated);
+    }
+
+    public Flux<Order> rejectQueuedOrders(List<QueuedOrder> queuedOrders) {
+        var orders = queuedOrders.stream()
+                .map(queued -> withCreatedBy(buildRejectedOrder(queued.line().isbn(), queued.line().quantity()),
+                        queued.createdBy()))
+                .toList();
+        var references = queuedOrders.stream().map(QueuedOrder::reference).toList();
+        return insertAll(orders, references)
+                .doOnNext(orderStats::recordCreated);
+    }
+
+    private Flux<Order> insertAll(List<Order> orders, List<UUID> references) {
+        return transactionalOperator.transactional(orderRepo.insertAll(orders, references)
+                        .collectList()
+                        .flatMap(savedOrders -> recordOrderEvents(savedOrders)
+                                .thenReturn(savedOrders)))
+                .doOnNext(orderUpdates::publish)
+                .flatMapIterable(Function.identity());
+    }
+
+    public Flux<Order> validatePendingOrders() {
+        return orderRepo.findPendingValidation(orderProperties.pendingValidationBatchSize())
+                .concatMap(order -> bookClient.getBookByIsbn(order.bookIsbn())
+                        .map(book -> buildValidatedOrder(order, book))
+                        .defaultIfEmpty(buildInvalidatedOrder(order))
+                        .flatMap(this::persist)
+                        .doOnNext(validatedOrder -> orderStats.recordTransition(OrderStatus.PENDING_VALIDATION,
+                                validatedOrder))
+                        .onErrorResume(OptimisticLockingFailureException.class, e -> Mono.empty()));
+    }
+
+    // Idempotent submissions keep their own transaction, as the key must commit with the order.
+    private Mono<Order> write(Order order) {
+        return orderWriteCombiner != null
+                ? orderWriteCombiner.write(order).switchIfEmpty(Mono.defer(() -> persist(order)))
+                : persist(order);
+    }
+
+    private Mono<Order> persist(Order order) {
+        return persist(order, null);
+    }
+
+    private Mono<Order> persist(Order order, IdempotencyKey idempotencyKey) {
+        return transactionalOperator.transactional(orderRepo.save(order)
+                        .flatMap(savedOrder -> recordIdempotencyKey(savedOrder, idempotencyKey)
+                                .then(recordOrderEvents(List.of(savedOrder)))
+                                .thenReturn(savedOrder)))
+                .doOnNext(savedOrder -> orderUpdates.publish(List.of(savedOrder)));
+    }
+
+    private List<Order> buildOrders(Map<String, BookLookup> books, List<OrderLine> lines) {
+        return lines.stream()
+                .map(line -> buildOrder(books.get(line.isbn()), line))
+                .toList();
+    }
+
+    private Order buildOrder(BookLookup lookup, OrderLine line) {
+        if (lookup.book() != null) {
+            return buildAcceptedOrder(lookup.book(), line.quantity());
+        }
+        return lookup.catalogAvailable()
+                ? buildRejectedOrder(line.isbn(), line.quantity())
+                : buildUnvalidatedOrder(line.isbn(), line.quantity());
+    }
+
+    private Order buildUnvalidatedOrder(String isbn, int quantity) {
+        return orderProperties.degradedMode() == OrderProperties.DegradedMode.PENDING_VALIDATION
+                ? Order.of(isbn, null, null, quantity, OrderStatus.PENDING_VALIDATION)
+                : buildRejectedOrder(isbn, quantity);
     }
 
     public static Order buildRejectedOrder(String isbn, int quantity) {
@@ -53,36 +229,101 @@ public class OrderService {
                 book.price(), quantity, OrderStatus.ACCEPTED);
     }
 
-    public Flux<Order> consumerOrderDispatchedEvent(Flux<OrderDispatchedMessage> flux) {
-        return flux.flatMap(msg -> orderRepo.findById(msg.orderId()))
-                .map(this::buildDispatchedOrder)
-                .flatMap(orderRepo::save);
+    static Order withCreatedBy(Order order, String createdBy) {
+        return new Order(
+                order.id(),
+                order.bookIsbn(),
+                order.bookName(),
+                order.bookPrice(),
+                order.quantity(),
+                order.status(),
+                order.createdDate(),
+                order.lastModifiedDate(),
+                order.version(),
+                createdBy,
+                createdBy
+        );
+    }
+
+    private static Order buildValidatedOrder(Order pendingOrder, Book book) {
+        return new Order(
+                pendingOrder.id(),
+                pendingOrder.bookIsbn(),
+                book.title() + " - " + book.author(),
+                book.price(),
+                pendingOrder.quantity(),
+                OrderStatus.ACCEPTED,
+                pendingOrder.createdDate(),
+                pendingOrder.lastModifiedDate(),
+                pendingOrder.version(),
+                pendingOrder.createdBy(),
+                pendingOrder.lastModifiedBy()
+        );
     }
 
-    private Order buildDispatchedOrder(Order existingOrder) {
+    private static Order buildInvalidatedOrder(Order pendingOrder) {
         return new Order(
-                existingOrder.id(),
-                existingOrder.bookIsbn(),
-                existingOrder.bookName(),
-                existingOrder.bookPrice(),
-                existingOrder.quantity(),
-                OrderStatus.DISPATCHED,
-                existingOrder.createdDate(),
-                existingOrder.lastModifiedDate(),
-                existingOrder.version(),
-                existingOrder.createdBy(),
-                existingOrder.lastModifiedBy()
+                pendingOrder.id(),
+                pendingOrder.bookIsbn(),
+                pendingOrder.bookName(),
+                pendingOrder.bookPrice(),
+                pendingOrder.quantity(),
+                OrderStatus.REJECTED,
+                pendingOrder.createdDate(),
+                pendingOrder.lastModifiedDate(),
+                pendingOrder.version(),
+                pendingOrder.createdBy(),
+                pendingOrder.lastModifiedBy()
         );
     }
 
-    private void publishOrderAcceptedEvent(Order order) {
-        if (!order.status().equals(OrderStatus.ACCEPTED)) {
-            return;
+    public Flux<Order> consumerOrderDispatchedEvent(List<OrderDispatchedMessage> messages) {
+        var orderIds = messages.stream()
+                .map(OrderDispatchedMessage::orderId)
+                .distinct()
+                .toList();
+        return orderMetrics.time(OrderMetrics.DISPATCH, "update", orders -> OrderMetrics.SUCCESS,
+                        transactionalOperator.transactional(orderRepo.markDispatched(orderIds)
+                                .collectList()
+                                .flatMap(orders -> orderUpdates.notifyCluster(orders)
+                                        .thenReturn(orders))))
+                .doOnNext(orderUpdates::publish)
+                .flatMapIterable(Function.identity())
+                // markDispatched only moves rows that are ACCEPTED, so that is where every returned order came from.
+                .doOnNext(order -> orderStats.recordTransition(OrderStatus.ACCEPTED, order));
+    }
+
+    private Mono<Void> recordIdempotencyKey(Order order, IdempotencyKey idempotencyKey) {
+        return idempotencyKey != null
+                ? idempotencyKeys.record(order, idempotencyKey)
+                : Mono.empty();
+    }
+
+    private Mono<Void> recordOrderEvents(List<Order> orders) {
+        return recordOrderAcceptedEvents(orders)
+                .then(orderUpdates.notifyCluster(orders));
+    }
+
+    private Mono<Void> recordOrderAcceptedEvents(List<Order> orders) {
+        var acceptedOrderIds = orders.stream()
+                .filter(order -> order.status().equals(OrderStatus.ACCEPTED))
+                .map(Order::id)
+                .toList();
+        if (!acceptedOrderIds.isEmpty()) {
+            log.info("Recording order accepted events for ids: {}", acceptedOrderIds);
         }
+        return orderOutbox.append(acceptedOrderIds);
+    }
+
+    private static final class StreamPosition {
+        private LocalDateTime createdDate;
+        private Long id;
+        private int rows;
 
-        var orderAcceptedMessage = new OrderAcceptedMessage(order.id());
-        log.info("Sending order accepted event with id: {}", order.id());
-        var publishResult = streamBridge.send("acceptOrder-out-0", orderAcceptedMessage);
-        log.info("Result of sending data for order with id {}: {}", order.id(), publishResult);
+        private void advance(Row row) {
+            createdDate = row.get("created_date", LocalDateTime.class);
+            id = row.get("id", Long.class);
+            rows++;
+        }
     }
 }
@@ -0,0 +1,227 @@
+package com.polarbookshop.orderservice.domain;
+
+import com.polarbookshop.orderservice.config.ReadOnlyRoute;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class OrderStats implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStats.class);
+    private static final Comparator<SalesKey> SALES_KEY_ORDER = Comparator
+            .comparing(SalesKey::bucketStart)
+            .thenComparing(SalesKey::bookIsbn);
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final Map<OrderStatus, Long> statusDeltas = new ConcurrentHashMap<>();
+    private final Map<SalesKey, SalesDelta> salesDeltas = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+
+    public OrderStats(DatabaseClient databaseClient, TransactionalOperator transactionalOperator) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+    }
+
+    public void recordCreated(Order order) {
+        statusDeltas.merge(order.status(), 1L, Long::sum);
+        recordSale(order);
+    }
+
+    public void recordTransition(OrderStatus from, Order order) {
+        statusDeltas.merge(from, -1L, Long::sum);
+        statusDeltas.merge(order.status(), 1L, Long::sum);
+        if (from != OrderStatus.ACCEPTED) {
+            recordSale(order);
+        }
+    }
+
+    public Mono<OrderStatsReport> report(Duration window, int top) {
+        var from = LocalDateTime.ofInstant(Instant.now().minus(window), ZoneId.systemDefault())
+                .truncatedTo(ChronoUnit.HOURS);
+        return ReadOnlyRoute.readOnly(Mono.zip(statusCounts(), topBooks(from, top), sales(from))
+                .map(stats -> new OrderStatsReport(toInstant(from), stats.getT1(), stats.getT2(), stats.getT3())));
+    }
+
+    // Deltas accumulate in memory so order writes never contend on the aggregate rows, and each
+    // flush folds them in with one upsert per table.
+    @Scheduled(fixedDelayString = "${polar.stats.flush-interval}")
+    public synchronized void flush() {
+        var statusCounts = drain(statusDeltas);
+        var sales = drain(salesDeltas);
+        if (statusCounts.isEmpty() && sales.isEmpty()) {
+            return;
+        }
+        transactionalOperator.transactional(writeStatusCounts(statusCounts).then(writeSales(sales)))
+                .doOnError(e -> {
+                    log.warn("Failed to flush order stats, retrying on next run", e);
+                    statusCounts.forEach((status, delta) -> statusDeltas.merge(status, delta, Long::sum));
+                    sales.forEach((key, delta) -> salesDeltas.merge(key, delta, SalesDelta::plus));
+                })
+                .onErrorResume(e -> Mono.empty())
+                .block();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        flush();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stop after OrderIntake, so the final flush includes the orders it drains during shutdown.
+        return SmartLifecycle.DEFAULT_PHASE - 8192;
+    }
+
+    private void recordSale(Order order) {
+        if (order.status() != OrderStatus.ACCEPTED || order.bookPrice() == null || order.createdDate() == null) {
+            return;
+        }
+        var bucketStart = LocalDateTime.ofInstant(order.createdDate(), ZoneId.systemDefault())
+                .truncatedTo(ChronoUnit.HOURS);
+        salesDeltas.merge(new SalesKey(bucketStart, order.bookIsbn()),
+                new SalesDelta(1, order.quantity(), order.quantity() * order.bookPrice()), SalesDelta::plus);
+    }
+
+    private Mono<Void> writeStatusCounts(Map<OrderStatus, Long> statusCounts) {
+        if (statusCounts.isEmpty()) {
+            return Mono.empty();
+        }
+        var statuses = statusCounts.keySet().stream().sorted().toList();
+        return databaseClient.sql("""
+                        INSERT INTO order_status_counts (status, order_count)
+                        SELECT status, order_count
+                        FROM unnest(CAST(:statuses AS varchar[]), CAST(:counts AS bigint[])) AS delta (status, order_count)
+                        ON CONFLICT (status) DO UPDATE
+                        SET order_count = order_status_counts.order_count + EXCLUDED.order_count
+                        """)
+                .bind("statuses", statuses.stream().map(OrderStatus::name).toArray(String[]::new))
+                .bind("counts", statuses.stream().map(statusCounts::get).toArray(Long[]::new))
+                .then();
+    }
+
+    private Mono<Void> writeSales(Map<SalesKey, SalesDelta> sales) {
+        if (sales.isEmpty()) {
+            return Mono.empty();
+        }
+        var keys = sales.keySet().stream().sorted(SALES_KEY_ORDER).toList();
+        return databaseClient.sql("""
+                        INSERT INTO order_sales_hourly (bucket_start, book_isbn, order_count, quantity, revenue)
+                        SELECT bucket_start, book_isbn, order_count, quantity, revenue
+                        FROM unnest(CAST(:buckets AS timestamp[]), CAST(:isbns AS varchar[]), CAST(:orders AS bigint[]),
+                                    CAST(:quantities AS bigint[]), CAST(:revenues AS float8[]))
+                            AS delta (bucket_start, book_isbn, order_count, quantity, revenue)
+                        ON CONFLICT (bucket_start, book_isbn) DO UPDATE
+                        SET order_count = order_sales_hourly.order_count + EXCLUDED.order_count,
+                            quantity = order_sales_hourly.quantity + EXCLUDED.quantity,
+                            revenue = order_sales_hourly.revenue + EXCLUDED.revenue
+                        """)
+                .bind("buckets", keys.stream().map(key -> key.bucketStart().toString()).toArray(String[]::new))
+                .bind("isbns", keys.stream().map(SalesKey::bookIsbn).toArray(String[]::new))
+                .bind("orders", keys.stream().map(key -> sales.get(key).orders()).toArray(Long[]::new))
+                .bind("quantities", keys.stream().map(key -> sales.get(key).quantity()).toArray(Long[]::new))
+                .bind("revenues", keys.stream().map(key -> sales.get(key).revenue()).toArray(Double[]::new))
+                .then();
+    }
+
+    private Mono<Map<OrderStatus, Long>> statusCounts() {
+        return databaseClient.sql("SELECT status, order_count FROM order_status_counts")
+                .map(row -> Map.entry(OrderStatus.valueOf(row.get("status", String.class)),
+                        row.get("order_count", Long.class)))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    private Mono<List<OrderStatsReport.BookSales>> topBooks(LocalDateTime from, int top) {
+        return databaseClient.sql("""
+                        SELECT book_isbn, sum(order_count) AS order_count, sum(quantity) AS quantity,
+                               sum(revenue) AS revenue
+                        FROM order_sales_hourly
+                        WHERE bucket_start >= :from
+                        GROUP BY book_isbn
+                        ORDER BY sum(quantity) DESC, book_isbn
+                        LIMIT :top
+                        """)
+                .bind("from", from)
+                .bind("top", top)
+                .map(row -> new OrderStatsReport.BookSales(
+                        row.get("book_isbn", String.class),
+                        row.get("order_count", Number.class).longValue(),
+                        row.get("quantity", Number.class).longValue(),
+                        row.get("revenue", Double.class)))
+                .all()
+                .collectList();
+    }
+
+    private Mono<List<OrderStatsReport.SalesBucket>> sales(LocalDateTime from) {
+        return databaseClient.sql("""
+                        SELECT bucket_start, sum(order_count) AS order_count, sum(quantity) AS quantity,
+                               sum(revenue) AS revenue
+                        FROM order_sales_hourly
+                        WHERE bucket_start >= :from
+                        GROUP BY bucket_start
+                        ORDER BY bucket_start
+                        """)
+                .bind("from", from)
+                .map(row -> new OrderStatsReport.SalesBucket(
+                        toInstant(row.get("bucket_start", LocalDateTime.class)),
+                        row.get("order_count", Number.class).longValue(),
+                        row.get("quantity", Number.class).longValue(),
+                        row.get("revenue", Double.class)))
+                .all()
+                .collectList();
+    }
+
+    private static <K, V> Map<K, V> drain(Map<K, V> deltas) {
+        var drained = new HashMap<K, V>();
+        for (var key : deltas.keySet()) {
+            var delta = deltas.remove(key);
+            if (delta != null) {
+                drained.put(key, delta);
+            }
+        }
+        return drained;
+    }
+
+    private static Instant toInstant(LocalDateTime value) {
+        return value.atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    private record SalesKey(LocalDateTime bucketStart, String bookIsbn) {
+    }
+
+    private record SalesDelta(long orders, long quantity, double revenue) {
+        SalesDelta plus(SalesDelta other) {
+            return new SalesDelta(orders + other.orders, quantity + other.quantity, revenue + other.revenue);
+        }
+    }
+}
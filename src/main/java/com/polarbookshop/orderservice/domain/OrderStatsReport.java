@@ -0,0 +1,28 @@
+package com.polarbookshop.orderservice.domain;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+public record OrderStatsReport(
+        Instant from,
+        Map<OrderStatus, Long> statusCounts,
+        List<BookSales> topBooks,
+        List<SalesBucket> sales
+) {
+    public record BookSales(
+            String bookIsbn,
+            long orders,
+            long quantity,
+            double revenue
+    ) {
+    }
+
+    public record SalesBucket(
+            Instant bucketStart,
+            long orders,
+            long quantity,
+            double revenue
+    ) {
+    }
+}
@@ -3,5 +3,6 @@ package com.polarbookshop.orderservice.domain;
 public enum OrderStatus {
     ACCEPTED,
     REJECTED,
-    DISPATCHED
+    DISPATCHED,
+    PENDING_VALIDATION
 }
@@ -0,0 +1,109 @@
+package com.polarbookshop.orderservice.domain;
+
+import com.polarbookshop.orderservice.config.WriteCombinerProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.ReactiveAuditorAware;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+@Component
+@ConditionalOnProperty(prefix = "polar.write-combiner", name = "enabled", havingValue = "true")
+class OrderWriteCombiner {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderWriteCombiner.class);
+
+    private final Sinks.Many<PendingWrite> pendingWrites = Sinks.many().unicast().onBackpressureBuffer();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final WriteCombinerProperties writeCombinerProperties;
+    private final ReactiveAuditorAware<String> auditorAware;
+    private final OrderMetrics orderMetrics;
+
+    OrderWriteCombiner(WriteCombinerProperties writeCombinerProperties, ReactiveAuditorAware<String> auditorAware,
+                       OrderMetrics orderMetrics) {
+        this.writeCombinerProperties = writeCombinerProperties;
+        this.auditorAware = auditorAware;
+        this.orderMetrics = orderMetrics;
+    }
+
+    /**
+     * Starts flushing queued orders through the batch writer, which must return the saved orders in the
+     * order it received them.
+     */
+    void start(Function<List<Order>, Flux<Order>> batchWriter) {
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("The write combiner is already started");
+        }
+        // Capacity is enforced by the queued counter, so the buffers between stages can stay unbounded
+        // and a window closing while every writer is busy never overflows bufferTimeout.
+        pendingWrites.asFlux()
+                .bufferTimeout(writeCombinerProperties.batchSize(), writeCombinerProperties.batchWindow())
+                .onBackpressureBuffer()
+                .flatMap(batch -> flush(batch, batchWriter), writeCombinerProperties.concurrency())
+                .subscribe();
+    }
+
+    /**
+     * Queues the order for the next combined insert, or completes empty when the combiner is full.
+     */
+    Mono<Order> write(Order order) {
+        // The batch is written outside the caller's context, so the auditor is resolved up front.
+        return auditorAware.getCurrentAuditor()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(auditor -> {
+                    if (queued.incrementAndGet() > writeCombinerProperties.capacity()) {
+                        queued.decrementAndGet();
+                        return Mono.empty();
+                    }
+                    var pendingWrite = new PendingWrite(OrderService.withCreatedBy(order, auditor.orElse(null)),
+                            Sinks.one());
+                    Sinks.EmitResult result;
+                    synchronized (pendingWrites) {
+                        result = pendingWrites.tryEmitNext(pendingWrite);
+                    }
+                    if (result.isFailure()) {
+                        queued.decrementAndGet();
+                        return Mono.empty();
+                    }
+                    return pendingWrite.result().asMono();
+                });
+    }
+
+    private Mono<Void> flush(List<PendingWrite> batch, Function<List<Order>, Flux<Order>> batchWriter) {
+        var orders = batch.stream().map(PendingWrite::order).toList();
+        return orderMetrics.time(OrderMetrics.WRITE_COMBINER, "flush", saved -> OrderMetrics.SUCCESS,
+                        batchWriter.apply(orders)
+                                .collectList()
+                                .flatMap(saved -> saved.size() == orders.size()
+                                        ? Mono.just(saved)
+                                        : Mono.error(new IllegalStateException("Combined write of %d orders saved %d"
+                                                .formatted(orders.size(), saved.size())))))
+                .doOnNext(saved -> {
+                    orderMetrics.recordBatchSize(OrderMetrics.WRITE_COMBINER, saved.size());
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).result().tryEmitValue(saved.get(i));
+                    }
+                })
+                .doOnError(e -> {
+                    log.error("Failed to write a combined batch of {} orders", batch.size(), e);
+                    batch.forEach(pendingWrite -> pendingWrite.result().tryEmitError(e));
+                })
+                .onErrorResume(e -> Mono.empty())
+                .doFinally(signal -> queued.addAndGet(-batch.size()))
+                .then();
+    }
+
+    private record PendingWrite(Order order, Sinks.One<Order> result) {
+    }
+}
@@ -0,0 +1,45 @@
+package com.polarbookshop.orderservice.domain;
+
+import com.polarbookshop.orderservice.book.BookClient;
+import com.polarbookshop.orderservice.book.CatalogUnavailableException;
+import com.polarbookshop.orderservice.config.OrderProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+@Component
+public class PendingOrderValidator {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingOrderValidator.class);
+
+    private final OrderService orderService;
+    private final BookClient bookClient;
+    private final OrderProperties orderProperties;
+
+    public PendingOrderValidator(OrderService orderService, BookClient bookClient, OrderProperties orderProperties) {
+        this.orderService = orderService;
+        this.bookClient = bookClient;
+        this.orderProperties = orderProperties;
+    }
+
+    @Scheduled(fixedDelayString = "${polar.orders.pending-validation-interval}")
+    public void validatePendingOrders() {
+        long validated;
+        do {
+            if (!bookClient.isCatalogAvailable()) {
+                return;
+            }
+            validated = orderService.validatePendingOrders()
+                    .doOnNext(order -> log.info("Pending order with id {} is now {}", order.id(), order.status()))
+                    .count()
+                    .onErrorResume(CatalogUnavailableException.class, e -> {
+                        log.warn("Catalog unavailable while validating pending orders, retrying on next poll");
+                        return Mono.just(0L);
+                    })
+                    .blockOptional()
+                    .orElse(0L);
+        } while (validated == orderProperties.pendingValidationBatchSize());
+    }
+}
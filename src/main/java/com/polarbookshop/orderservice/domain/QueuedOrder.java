@@ -0,0 +1,10 @@
+package com.polarbookshop.orderservice.domain;
+
+import java.util.UUID;
+
+public record QueuedOrder(
+        UUID reference,
+        OrderLine line,
+        String createdBy
+) {
+}
@@ -0,0 +1,169 @@
+package com.polarbookshop.orderservice.domain;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.polarbookshop.orderservice.config.ReadOnlyRoute;
+import com.polarbookshop.orderservice.config.RecentOrdersProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+@Component
+public class RecentOrders {
+
+    private static final String CACHE_NAME = "orders.recent";
+    private static final Comparator<Order> NEWEST_FIRST = Comparator
+            .comparing(Order::createdDate, Comparator.reverseOrder())
+            .thenComparing(Order::id, Comparator.reverseOrder());
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int ORDER_OVERHEAD = 160;
+
+    private final OrderRepository orderRepo;
+    private final RecentOrdersProperties recentOrdersProperties;
+    private final AsyncCache<String, UserOrders> cache;
+
+    public RecentOrders(OrderRepository orderRepo, RecentOrdersProperties recentOrdersProperties,
+                        MeterRegistry meterRegistry) {
+        this.orderRepo = orderRepo;
+        this.recentOrdersProperties = recentOrdersProperties;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(recentOrdersProperties.memoryBudget().toBytes())
+                .weigher((String userId, UserOrders orders) -> orders.weight())
+                .expireAfterWrite(recentOrdersProperties.ttl())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), CACHE_NAME);
+        meterRegistry.gauge(CACHE_NAME + ".weight", cache, c -> c.synchronous().policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L));
+    }
+
+    public Optional<Flux<Order>> firstPage(String userId, int limit) {
+        if (!recentOrdersProperties.enabled() || limit > recentOrdersProperties.ordersPerUser()) {
+            return Optional.empty();
+        }
+        return Optional.of(load(userId)
+                .flatMapIterable(orders -> orders.orders().subList(0, Math.min(limit, orders.orders().size()))));
+    }
+
+    public Optional<Mono<OrderListVersion>> listVersion(String userId) {
+        if (!recentOrdersProperties.enabled()) {
+            return Optional.empty();
+        }
+        var cached = cache.getIfPresent(userId);
+        if (cached == null || !cached.isDone() || cached.isCompletedExceptionally() || !cached.join().complete()) {
+            return Optional.empty();
+        }
+        return Optional.of(Mono.just(cached.join().version(userId)));
+    }
+
+    public void apply(Collection<Order> orders) {
+        if (!recentOrdersProperties.enabled()) {
+            return;
+        }
+        // Chaining onto the cached future also patches a load that is still in flight.
+        orders.stream()
+                .filter(order -> order.createdBy() != null)
+                .forEach(order -> cache.asMap().computeIfPresent(order.createdBy(),
+                        (userId, cached) -> cached.thenApply(userOrders -> userOrders.with(order,
+                                recentOrdersProperties.ordersPerUser()))));
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    // Loaded from the primary: right after checkout a lagging replica would pin a stale list until expiry.
+    private Mono<UserOrders> load(String userId) {
+        var capacity = recentOrdersProperties.ordersPerUser();
+        return Mono.deferContextual(context -> Mono.fromFuture(cache.get(userId, (key, executor) ->
+                        orderRepo.findFirstPageByCreatedBy(key, capacity + 1)
+                                .collectList()
+                                .map(orders -> new UserOrders(orders.stream().limit(capacity).toList(),
+                                        orders.size() <= capacity))
+                                .contextWrite(loaderContext -> loaderContext.delete(ReadOnlyRoute.CONTEXT_KEY))
+                                .contextWrite(context)
+                                .toFuture())
+                .copy()));
+    }
+
+    record UserOrders(List<Order> orders, boolean complete) {
+
+        UserOrders with(Order order, int capacity) {
+            var normalized = normalize(order);
+            var updated = new ArrayList<Order>(orders.size() + 1);
+            var found = false;
+            for (var existing : orders) {
+                if (Objects.equals(existing.id(), normalized.id())) {
+                    found = true;
+                    updated.add(normalized.version() >= existing.version() ? normalized : existing);
+                } else {
+                    updated.add(existing);
+                }
+            }
+            if (found) {
+                return new UserOrders(List.copyOf(updated), complete);
+            }
+            updated.add(normalized);
+            updated.sort(NEWEST_FIRST);
+            if (updated.size() <= capacity) {
+                return new UserOrders(List.copyOf(updated), complete);
+            }
+            return new UserOrders(List.copyOf(updated.subList(0, capacity)), false);
+        }
+
+        OrderListVersion version(String userId) {
+            var lastModifiedDate = orders.stream()
+                    .map(Order::lastModifiedDate)
+                    .max(Comparator.naturalOrder())
+                    .orElse(null);
+            return new OrderListVersion(userId, orders.size(), lastModifiedDate);
+        }
+
+        int weight() {
+            return ENTRY_OVERHEAD + orders.stream().mapToInt(RecentOrders::weigh).sum();
+        }
+    }
+
+    // Postgres keeps microseconds; truncating keeps cursors and list versions equal to what a reload would produce.
+    private static Order normalize(Order order) {
+        return new Order(
+                order.id(),
+                order.bookIsbn(),
+                order.bookName(),
+                order.bookPrice(),
+                order.quantity(),
+                order.status(),
+                truncate(order.createdDate()),
+                truncate(order.lastModifiedDate()),
+                order.version(),
+                order.createdBy(),
+                order.lastModifiedBy()
+        );
+    }
+
+    private static Instant truncate(Instant instant) {
+        return instant != null ? instant.truncatedTo(ChronoUnit.MICROS) : null;
+    }
+
+    private static int weigh(Order order) {
+        return ORDER_OVERHEAD + 2 * (length(order.bookIsbn()) + length(order.bookName())
+                + length(order.createdBy()) + length(order.lastModifiedBy()));
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+}
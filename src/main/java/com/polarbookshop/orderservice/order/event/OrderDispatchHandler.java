@@ -0,0 +1,152 @@
+package com.polarbookshop.orderservice.order.event;
+
+import com.polarbookshop.orderservice.config.DispatchProperties;
+import com.polarbookshop.orderservice.domain.OrderService;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class OrderDispatchHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderDispatchHandler.class);
+    private static final String PARK_BINDING = "parkDispatchedOrder-out-0";
+    private static final String X_DEATH = "x-death";
+    private static final String X_EXCEPTION_MESSAGE = "x-exception-message";
+
+    private final OrderService orderService;
+    private final StreamBridge streamBridge;
+    private final DispatchProperties dispatchProperties;
+    private final Counter retried;
+    private final Counter parked;
+
+    public OrderDispatchHandler(OrderService orderService, StreamBridge streamBridge,
+                                DispatchProperties dispatchProperties, MeterRegistry meterRegistry) {
+        this.orderService = orderService;
+        this.streamBridge = streamBridge;
+        this.dispatchProperties = dispatchProperties;
+        this.retried = meterRegistry.counter("orders.dispatch.failures", "outcome", "retried");
+        this.parked = meterRegistry.counter("orders.dispatch.failures", "outcome", "parked");
+    }
+
+    // Never signals an error: a failure here would cancel the binding's consumer flux for every lane.
+    public Mono<Void> handle(List<Message<OrderDispatchedMessage>> batch) {
+        return dispatch(batch)
+                .then(settle(batch, Settlement.ACK))
+                .onErrorResume(e -> {
+                    if (batch.size() == 1) {
+                        return fail(batch.get(0), e);
+                    }
+                    log.warn("Failed to dispatch a batch of {} orders, retrying them one by one", batch.size(), e);
+                    return Flux.fromIterable(batch)
+                            .concatMap(message -> dispatch(List.of(message))
+                                    .then(settle(List.of(message), Settlement.ACK))
+                                    .onErrorResume(error -> fail(message, error)))
+                            .then();
+                })
+                .onErrorResume(e -> {
+                    log.error("Failed to settle a batch of {} dispatched orders", batch.size(), e);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> dispatch(List<Message<OrderDispatchedMessage>> messages) {
+        return orderService.consumerOrderDispatchedEvent(messages.stream().map(Message::getPayload).toList())
+                .doOnNext(order -> log.info("The order with id {} is dispatched", order.id()))
+                .then();
+    }
+
+    // Rejected messages are dead-lettered to the retry queue, whose TTL routes them back after a delay.
+    private Mono<Void> fail(Message<OrderDispatchedMessage> message, Throwable error) {
+        var attempts = attempts(message);
+        if (attempts < dispatchProperties.maxAttempts()) {
+            log.warn("Failed to dispatch order {} on attempt {}, retrying later",
+                    message.getPayload().orderId(), attempts, error);
+            retried.increment();
+            return settle(List.of(message), Settlement.RETRY);
+        }
+        log.error("Failed to dispatch order {} after {} attempts, parking it",
+                message.getPayload().orderId(), attempts, error);
+        var correlation = new CorrelationData(String.valueOf(message.getPayload().orderId()));
+        var parkedMessage = MessageBuilder.withPayload(message.getPayload())
+                .setHeader(X_DEATH, message.getHeaders().get(X_DEATH))
+                .setHeader(X_EXCEPTION_MESSAGE, String.valueOf(error.getMessage()))
+                .setHeader(AmqpHeaders.PUBLISH_CONFIRM_CORRELATION, correlation)
+                .build();
+        // The original is only acked once the broker confirms the parked copy reached a queue; the publish
+        // is mandatory, so a copy that no queue took comes back as returned and the original is retried.
+        return Mono.fromCallable(() -> streamBridge.send(PARK_BINDING, parkedMessage))
+                .subscribeOn(Schedulers.boundedElastic())
+                .filter(Boolean::booleanValue)
+                .flatMap(sent -> Mono.fromFuture(correlation.getFuture().completable()))
+                .map(confirm -> confirm.isAck() && correlation.getReturned() == null)
+                .timeout(dispatchProperties.parkTimeout())
+                .onErrorReturn(false)
+                .defaultIfEmpty(false)
+                .flatMap(sent -> {
+                    if (sent) {
+                        parked.increment();
+                        return settle(List.of(message), Settlement.ACK);
+                    }
+                    retried.increment();
+                    return settle(List.of(message), Settlement.RETRY);
+                });
+    }
+
+    static long attempts(Message<?> message) {
+        var deaths = message.getHeaders().get(X_DEATH);
+        if (!(deaths instanceof List<?> entries)) {
+            return 1;
+        }
+        return 1 + entries.stream()
+                .filter(entry -> entry instanceof Map<?, ?>)
+                .map(entry -> (Map<?, ?>) entry)
+                .filter(death -> "rejected".equals(String.valueOf(death.get("reason"))))
+                .map(death -> death.get("count"))
+                .filter(Number.class::isInstance)
+                .mapToLong(count -> ((Number) count).longValue())
+                .max()
+                .orElse(0);
+    }
+
+    private static Mono<Void> settle(List<Message<OrderDispatchedMessage>> messages, Settlement settlement) {
+        return Mono.<Void>fromRunnable(() -> messages.forEach(message -> settle(message, settlement)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static void settle(Message<?> message, Settlement settlement) {
+        var channel = message.getHeaders().get(AmqpHeaders.CHANNEL, Channel.class);
+        var deliveryTag = message.getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class);
+        if (channel == null || deliveryTag == null) {
+            return;
+        }
+        try {
+            if (settlement == Settlement.ACK) {
+                channel.basicAck(deliveryTag, false);
+            } else {
+                channel.basicNack(deliveryTag, false, false);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to settle message with delivery tag {}", deliveryTag, e);
+        }
+    }
+
+    private enum Settlement {
+        ACK, RETRY
+    }
+}
@@ -1,23 +1,51 @@
 package com.polarbookshop.orderservice.order.event;
 
-import com.polarbookshop.orderservice.domain.OrderService;
+import com.polarbookshop.orderservice.config.DispatchProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
 import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
 import java.util.function.Consumer;
 
 @Configuration
 public class OrderFunctions {
 
     private static final Logger log = LoggerFactory.getLogger(OrderFunctions.class);
+    private static final Duration RESUBSCRIBE_DELAY = Duration.ofSeconds(1);
 
     @Bean
-    public Consumer<Flux<OrderDispatchedMessage>> dispatchOrder(OrderService orderService) {
-        return flux -> orderService.consumerOrderDispatchedEvent(flux)
-                .doOnNext(order -> log.info("The order with id {} is dispatched", order.id()))
+    public Consumer<Flux<Message<OrderDispatchedMessage>>> dispatchOrder(OrderDispatchHandler orderDispatchHandler,
+                                                                        DispatchProperties dispatchProperties) {
+        var lanes = dispatchProperties.lanes();
+        return flux -> flux
+                .groupBy(message -> lane(message.getPayload().orderId(), lanes),
+                        lanes * dispatchProperties.lanePrefetch())
+                // A lane stuck on a slow batch keeps its messages queued in order behind it. What it can queue is
+                // bounded by the binding's prefetch: once that many messages are unacknowledged the broker stops
+                // delivering, so the lane slows the consumer down instead of sending orders around the retry queue.
+                .flatMap(lane -> lane
+                        .bufferTimeout(dispatchProperties.batchSize(), dispatchProperties.batchWindow())
+                        // bufferTimeout cannot hold a batch whose window closes while the previous one is still
+                        // being handled, and would fail the whole consumer once concatMap's queue is full.
+                        .onBackpressureBuffer()
+                        .concatMap(orderDispatchHandler::handle), lanes)
+                .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, RESUBSCRIBE_DELAY)
+                        .doBeforeRetry(signal -> log.error("The order dispatch consumer failed, resubscribing",
+                                signal.failure())))
                 .subscribe();
     }
+
+    // Orders are spread over lanes by a mix of their id that is independent of the partition selector, so
+    // an instance consuming a single partition of a partitioned destination still uses all of its lanes.
+    static int lane(Long orderId, int lanes) {
+        if (orderId == null) {
+            return 0;
+        }
+        return Math.floorMod((int) ((orderId * 0x9E3779B97F4A7C15L) >>> 32), lanes);
+    }
 }
@@ -0,0 +1,48 @@
+package com.polarbookshop.orderservice.order.event;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+@Component
+public class OrderOutbox {
+
+    private final DatabaseClient databaseClient;
+
+    public OrderOutbox(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Void> append(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return Mono.empty();
+        }
+        return databaseClient.sql("""
+                        INSERT INTO order_outbox (order_id, created_date)
+                        SELECT unnest(CAST(:orderIds AS bigint[])), now()
+                        """)
+                .bind("orderIds", orderIds.toArray(Long[]::new))
+                .then();
+    }
+
+    public Flux<OrderOutboxEntry> lockPending(int limit) {
+        return databaseClient.sql("""
+                        SELECT id, order_id FROM order_outbox
+                        ORDER BY id
+                        LIMIT :limit
+                        FOR UPDATE SKIP LOCKED
+                        """)
+                .bind("limit", limit)
+                .map(row -> new OrderOutboxEntry(row.get("id", Long.class), row.get("order_id", Long.class)))
+                .all();
+    }
+
+    public Mono<Void> remove(Collection<Long> entryIds) {
+        return databaseClient.sql("DELETE FROM order_outbox WHERE id = ANY(:ids)")
+                .bind("ids", entryIds.toArray(Long[]::new))
+                .then();
+    }
+}
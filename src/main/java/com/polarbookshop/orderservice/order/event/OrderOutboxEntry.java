@@ -0,0 +1,6 @@
+package com.polarbookshop.orderservice.order.event;
+
+public record OrderOutboxEntry(
+        Long id,
+        Long orderId
+) {}
@@ -0,0 +1,100 @@
+package com.polarbookshop.orderservice.order.event;
+
+import com.polarbookshop.orderservice.config.OutboxProperties;
+import com.polarbookshop.orderservice.domain.OrderMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+@Component
+public class OrderOutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderOutboxRelay.class);
+    private static final String ACCEPT_ORDER_BINDING = "acceptOrder-out-0";
+
+    private final OrderOutbox orderOutbox;
+    private final StreamBridge streamBridge;
+    private final TransactionalOperator transactionalOperator;
+    private final OutboxProperties outboxProperties;
+    private final OrderMetrics orderMetrics;
+
+    public OrderOutboxRelay(OrderOutbox orderOutbox, StreamBridge streamBridge,
+                            TransactionalOperator transactionalOperator, OutboxProperties outboxProperties,
+                            OrderMetrics orderMetrics) {
+        this.orderOutbox = orderOutbox;
+        this.streamBridge = streamBridge;
+        this.transactionalOperator = transactionalOperator;
+        this.outboxProperties = outboxProperties;
+        this.orderMetrics = orderMetrics;
+    }
+
+    @Scheduled(fixedDelayString = "${polar.outbox.poll-interval}")
+    public void relayPendingEvents() {
+        int relayed;
+        do {
+            relayed = transactionalOperator.transactional(relayBatch())
+                    .onErrorResume(e -> {
+                        log.warn("Failed to relay order accepted events, retrying on next poll", e);
+                        return Mono.just(0);
+                    })
+                    .blockOptional()
+                    .orElse(0);
+        } while (relayed == outboxProperties.batchSize());
+    }
+
+    private Mono<Integer> relayBatch() {
+        return orderOutbox.lockPending(outboxProperties.batchSize())
+                .collectList()
+                .filter(entries -> !entries.isEmpty())
+                .flatMap(entries -> orderMetrics.time(OrderMetrics.OUTBOX_RELAY, "publish", count -> OrderMetrics.SUCCESS,
+                                publish(entries).thenReturn(entries.size()))
+                        .flatMap(count -> orderOutbox.remove(entries.stream().map(OrderOutboxEntry::id).toList())
+                                .thenReturn(count)))
+                .defaultIfEmpty(0);
+    }
+
+    private Mono<Void> publish(List<OrderOutboxEntry> entries) {
+        return Flux.fromIterable(entries)
+                .concatMap(this::send)
+                .collectList()
+                .flatMap(this::awaitConfirms);
+    }
+
+    private Mono<CorrelationData> send(OrderOutboxEntry entry) {
+        return Mono.fromCallable(() -> {
+            var correlation = new CorrelationData(entry.id().toString());
+            var message = MessageBuilder.withPayload(new OrderAcceptedMessage(entry.orderId()))
+                    .setHeader(AmqpHeaders.PUBLISH_CONFIRM_CORRELATION, correlation)
+                    .build();
+            log.info("Sending order accepted event with id: {}", entry.orderId());
+            if (!streamBridge.send(ACCEPT_ORDER_BINDING, message)) {
+                throw new IllegalStateException("Order accepted event for order " + entry.orderId() + " was not sent");
+            }
+            return correlation;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Void> awaitConfirms(List<CorrelationData> correlations) {
+        if (!outboxProperties.publisherConfirms()) {
+            return Mono.empty();
+        }
+        return Flux.fromIterable(correlations)
+                .flatMap(correlation -> Mono.fromFuture(correlation.getFuture().completable())
+                        .filter(CorrelationData.Confirm::isAck)
+                        .switchIfEmpty(Mono.error(() -> new IllegalStateException(
+                                "Broker did not confirm outbox entry " + correlation.getId()))))
+                .timeout(outboxProperties.confirmTimeout())
+                .then();
+    }
+}
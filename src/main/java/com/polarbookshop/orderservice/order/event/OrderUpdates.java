@@ -0,0 +1,126 @@
+package com.polarbookshop.orderservice.order.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polarbookshop.orderservice.config.OrderUpdatesProperties;
+import com.polarbookshop.orderservice.domain.Order;
+import com.polarbookshop.orderservice.domain.RecentOrders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class OrderUpdates {
+
+    static final String CHANNEL = "order_updates";
+
+    private static final Logger log = LoggerFactory.getLogger(OrderUpdates.class);
+
+    private final String origin = UUID.randomUUID().toString();
+    private final Map<String, UserSink> sinks = new ConcurrentHashMap<>();
+    private final DatabaseClient databaseClient;
+    private final ObjectMapper objectMapper;
+    private final RecentOrders recentOrders;
+    private final OrderUpdatesProperties orderUpdatesProperties;
+
+    public OrderUpdates(DatabaseClient databaseClient, ObjectMapper objectMapper, RecentOrders recentOrders,
+                        OrderUpdatesProperties orderUpdatesProperties) {
+        this.databaseClient = databaseClient;
+        this.objectMapper = objectMapper;
+        this.recentOrders = recentOrders;
+        this.orderUpdatesProperties = orderUpdatesProperties;
+    }
+
+    // Subscribers are counted in the same atomic step that looks the sink up, so a concurrent
+    // unsubscribe cannot remove a sink between the lookup and the subscription.
+    public Flux<Order> updatesFor(String userId) {
+        return Flux.defer(() -> {
+            var userSink = sinks.compute(userId,
+                    (id, current) -> (current != null ? current : new UserSink()).acquire());
+            return userSink.sink.asFlux()
+                    .doFinally(signal -> sinks.computeIfPresent(userId,
+                            (id, current) -> current == userSink ? current.release() : current));
+        });
+    }
+
+    public Mono<Void> notifyCluster(Collection<Order> orders) {
+        if (orders.isEmpty() || !orderUpdatesProperties.clusterNotifications()) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> orders.stream().map(this::encode).toArray(String[]::new))
+                .flatMap(payloads -> databaseClient.sql("""
+                                SELECT pg_notify('%s', payload)
+                                FROM unnest(CAST(:payloads AS text[])) AS payload
+                                """.formatted(CHANNEL))
+                        .bind("payloads", payloads)
+                        .then());
+    }
+
+    public void publish(Collection<Order> orders) {
+        recentOrders.apply(orders);
+        orders.forEach(this::publish);
+    }
+
+    void receive(String payload) {
+        try {
+            var notification = objectMapper.readValue(payload, OrderNotification.class);
+            if (!origin.equals(notification.origin())) {
+                recentOrders.apply(List.of(notification.order()));
+                publish(notification.order());
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed order update notification", e);
+        }
+    }
+
+    // Notifications sent while the listener was disconnected are gone, so cached lists may have missed them.
+    void resynchronize() {
+        recentOrders.invalidateAll();
+    }
+
+    private void publish(Order order) {
+        var userSink = sinks.get(order.createdBy());
+        if (userSink == null) {
+            return;
+        }
+        synchronized (userSink) {
+            userSink.sink.tryEmitNext(order);
+        }
+    }
+
+    private String encode(Order order) {
+        try {
+            return objectMapper.writeValueAsString(new OrderNotification(origin, order));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode update for order " + order.id(), e);
+        }
+    }
+
+    record OrderNotification(String origin, Order order) {
+    }
+
+    // The subscriber count is only touched inside the map's per-key compute.
+    private static final class UserSink {
+        private final Sinks.Many<Order> sink = Sinks.many().multicast().directBestEffort();
+        private int subscribers;
+
+        UserSink acquire() {
+            subscribers++;
+            return this;
+        }
+
+        UserSink release() {
+            return --subscribers == 0 ? null : this;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.polarbookshop.orderservice.order.event;
+
+import com.polarbookshop.orderservice.config.OrderUpdatesProperties;
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.postgresql.api.PostgresqlResult;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+@Component
+public class OrderUpdatesListener implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderUpdatesListener.class);
+
+    private final OrderUpdates orderUpdates;
+    private final OrderUpdatesProperties orderUpdatesProperties;
+    private final ConnectionFactory connectionFactory;
+
+    private volatile Disposable subscription;
+
+    public OrderUpdatesListener(OrderUpdates orderUpdates, OrderUpdatesProperties orderUpdatesProperties,
+                                R2dbcProperties r2dbcProperties) {
+        this.orderUpdates = orderUpdates;
+        this.orderUpdatesProperties = orderUpdatesProperties;
+        // LISTEN needs a connection of its own for the lifetime of the application,
+        // so it is opened outside the pool rather than pinning a pooled one.
+        this.connectionFactory = ConnectionFactories.get(ConnectionFactoryOptions.parse(r2dbcProperties.getUrl())
+                .mutate()
+                .option(ConnectionFactoryOptions.USER, r2dbcProperties.getUsername())
+                .option(ConnectionFactoryOptions.PASSWORD, r2dbcProperties.getPassword())
+                .build());
+    }
+
+    @Override
+    public void start() {
+        subscription = Flux.usingWhen(
+                        Mono.from(connectionFactory.create()).cast(PostgresqlConnection.class),
+                        this::listen,
+                        PostgresqlConnection::close)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, orderUpdatesProperties.reconnectBackoff())
+                        .doBeforeRetry(signal -> log.warn("Lost the order updates listener connection, reconnecting",
+                                signal.failure())))
+                .mapNotNull(Notification::getParameter)
+                .subscribe(orderUpdates::receive);
+    }
+
+    @Override
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+            subscription = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return subscription != null;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return orderUpdatesProperties.clusterNotifications();
+    }
+
+    private Flux<Notification> listen(PostgresqlConnection connection) {
+        return connection.createStatement("LISTEN " + OrderUpdates.CHANNEL)
+                .execute()
+                .flatMap(PostgresqlResult::getRowsUpdated)
+                .then(Mono.fromRunnable(orderUpdates::resynchronize))
+                .thenMany(connection.getNotifications())
+                .concatWith(Mono.error(() -> new IllegalStateException("The order updates connection was closed")));
+    }
+}
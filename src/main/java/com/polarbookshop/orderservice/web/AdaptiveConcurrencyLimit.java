@@ -0,0 +1,63 @@
+package com.polarbookshop.orderservice.web;
+
+class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+    private boolean backedOff;
+    private long lastBackoffNanos;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos,
+                             double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+    }
+
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    // Additive increase while requests complete in time and the limit is actually in use, multiplicative
+    // decrease when a request fails or is slow while the limit is in use. Slow requests far below the limit
+    // point at a slow dependency rather than at this instance, and requests that were already in flight at
+    // the last decrease report the old limit, so they do not back off again.
+    synchronized void release(long startNanos, long endNanos, boolean dropped) {
+        var saturated = inFlight * 2 >= limit;
+        inFlight--;
+        var slow = endNanos - startNanos > latencyThresholdNanos;
+        if (dropped || (slow && saturated)) {
+            if (!backedOff || startNanos - lastBackoffNanos > 0) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                backedOff = true;
+                lastBackoffNanos = endNanos;
+            }
+        } else if (!slow && saturated) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    // Streamed responses last as long as the client keeps reading, so their duration says nothing about load.
+    synchronized void release() {
+        inFlight--;
+    }
+
+    synchronized int limit() {
+        return (int) limit;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,114 @@
+package com.polarbookshop.orderservice.web;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.polarbookshop.orderservice.config.AdmissionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@Order(0)
+public class AdmissionControlWebFilter implements WebFilter {
+
+    private static final String ORDERS_PATH = "/orders";
+    private static final String STREAM_PATH = "/orders/stream";
+    private static final String OVERLOADED_RETRY_AFTER_SECONDS = "1";
+
+    private final AdmissionProperties admissionProperties;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final Cache<String, TokenBucket> userBuckets;
+    private final Counter rateLimited;
+    private final Counter overloaded;
+
+    public AdmissionControlWebFilter(AdmissionProperties admissionProperties, MeterRegistry meterRegistry) {
+        this.admissionProperties = admissionProperties;
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(admissionProperties.initialLimit(),
+                admissionProperties.minLimit(), admissionProperties.maxLimit(),
+                admissionProperties.latencyThreshold().toNanos(), admissionProperties.backoffRatio());
+        this.userBuckets = Caffeine.newBuilder()
+                .expireAfterAccess(admissionProperties.userIdleTimeout())
+                .build();
+        this.rateLimited = meterRegistry.counter("orders.admission.rejected", "reason", "rate_limited");
+        this.overloaded = meterRegistry.counter("orders.admission.rejected", "reason", "overloaded");
+        meterRegistry.gauge("orders.admission.limit", concurrencyLimit, AdaptiveConcurrencyLimit::limit);
+        meterRegistry.gauge("orders.admission.in.flight", concurrencyLimit, AdaptiveConcurrencyLimit::inFlight);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!admissionProperties.enabled() || !isAdmissionControlled(exchange.getRequest().getPath().value())) {
+            return chain.filter(exchange);
+        }
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .map(this::waitForToken)
+                .defaultIfEmpty(0L)
+                .flatMap(waitNanos -> {
+                    if (waitNanos > 0) {
+                        rateLimited.increment();
+                        var retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999));
+                        return reject(exchange, HttpStatus.TOO_MANY_REQUESTS, String.valueOf(retryAfterSeconds));
+                    }
+                    if (!concurrencyLimit.tryAcquire()) {
+                        overloaded.increment();
+                        return reject(exchange, HttpStatus.SERVICE_UNAVAILABLE, OVERLOADED_RETRY_AFTER_SECONDS);
+                    }
+                    var start = System.nanoTime();
+                    var streaming = isStreaming(exchange);
+                    return chain.filter(exchange)
+                            .doFinally(signal -> {
+                                if (streaming) {
+                                    concurrencyLimit.release();
+                                } else {
+                                    concurrencyLimit.release(start, System.nanoTime(), isDropped(exchange, signal));
+                                }
+                            });
+                });
+    }
+
+    private long waitForToken(String userId) {
+        var now = System.nanoTime();
+        return userBuckets.get(userId, id -> new TokenBucket(admissionProperties.userRequestsPerSecond(),
+                        admissionProperties.userBurst(), now))
+                .tryTake(now);
+    }
+
+    // The update stream holds its request open for as long as the client listens, so it cannot count
+    // against the concurrency limit.
+    private static boolean isAdmissionControlled(String path) {
+        return (path.equals(ORDERS_PATH) || path.startsWith(ORDERS_PATH + "/")) && !path.equals(STREAM_PATH);
+    }
+
+    private static boolean isStreaming(ServerWebExchange exchange) {
+        return exchange.getRequest().getHeaders().getAccept().stream()
+                .anyMatch(type -> type.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON)
+                        || type.equalsTypeAndSubtype(MediaType.TEXT_EVENT_STREAM));
+    }
+
+    private static boolean isDropped(ServerWebExchange exchange, SignalType signal) {
+        var status = exchange.getResponse().getStatusCode();
+        return signal == SignalType.ON_ERROR
+                || status == HttpStatus.SERVICE_UNAVAILABLE
+                || status == HttpStatus.GATEWAY_TIMEOUT;
+    }
+
+    private static Mono<Void> reject(ServerWebExchange exchange, HttpStatus status, String retryAfterSeconds) {
+        var response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        return response.setComplete();
+    }
+}
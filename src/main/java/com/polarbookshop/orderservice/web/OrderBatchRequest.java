@@ -0,0 +1,14 @@
+package com.polarbookshop.orderservice.web;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+public record OrderBatchRequest(
+
+        @NotEmpty(message="The batch must contain at least one order.")
+        @Size(max=500, message="The batch cannot contain more than 500 orders.")
+        List<@Valid OrderRequest> orders
+) {
+}
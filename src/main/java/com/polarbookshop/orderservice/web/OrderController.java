@@ -1,33 +1,210 @@
 package com.polarbookshop.orderservice.web;
 
+import com.polarbookshop.orderservice.config.OrderProperties;
+import com.polarbookshop.orderservice.config.OrderUpdatesProperties;
 import com.polarbookshop.orderservice.domain.Order;
+import com.polarbookshop.orderservice.domain.IdempotencyKeyMismatchException;
+import com.polarbookshop.orderservice.domain.OrderCursor;
+import com.polarbookshop.orderservice.domain.OrderEvent;
+import com.polarbookshop.orderservice.domain.OrderIdempotency;
+import com.polarbookshop.orderservice.domain.OrderIntake;
+import com.polarbookshop.orderservice.domain.OrderLine;
 import com.polarbookshop.orderservice.domain.OrderService;
+import com.polarbookshop.orderservice.order.event.OrderUpdates;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("orders")
 public class OrderController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    private static final String PREFER = "Prefer";
+    private static final String PREFERENCE_APPLIED = "Preference-Applied";
+    private static final String RESPOND_ASYNC = "respond-async";
+    private static final String RETRY_AFTER_SECONDS = "1";
+
     private final OrderService orderService;
+    private final OrderIntake orderIntake;
+    private final OrderIdempotency orderIdempotency;
+    private final OrderUpdates orderUpdates;
+    private final OrderProperties orderProperties;
+    private final OrderUpdatesProperties orderUpdatesProperties;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderIntake orderIntake, OrderIdempotency orderIdempotency,
+                           OrderUpdates orderUpdates, OrderProperties orderProperties,
+                           OrderUpdatesProperties orderUpdatesProperties) {
         this.orderService = orderService;
+        this.orderIntake = orderIntake;
+        this.orderIdempotency = orderIdempotency;
+        this.orderUpdates = orderUpdates;
+        this.orderProperties = orderProperties;
+        this.orderUpdatesProperties = orderUpdatesProperties;
     }
 
     @GetMapping
-    public Flux<Order> getAllOrders(@AuthenticationPrincipal Jwt jwt) {
+    public Mono<ResponseEntity<List<Order>>> getAllOrders(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            ServerWebExchange exchange
+    ) {
+        var pageSize = pageSize(limit);
+        var cursor = decodeCursor(after);
+        return orderService.getOrderListVersion(jwt.getSubject())
+                .map(version -> version.etag(cursor, pageSize))
+                .flatMap(etag -> exchange.checkNotModified(etag)
+                        ? Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).<List<Order>>build())
+                        : getOrderPage(jwt.getSubject(), cursor, pageSize, etag));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<DataBuffer> streamAllOrders(@AuthenticationPrincipal Jwt jwt, ServerWebExchange exchange) {
+        var bufferFactory = exchange.getResponse().bufferFactory();
+        return orderService.streamOrders(jwt.getSubject(),
+                        (row, metadata) -> OrderJsonWriter.writeLine(row, bufferFactory))
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    @GetMapping(value = "stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Order>> streamOrderUpdates(@AuthenticationPrincipal Jwt jwt) {
+        var updates = orderUpdates.updatesFor(jwt.getSubject())
+                .map(order -> ServerSentEvent.builder(order)
+                        .id(order.id() + "-" + order.version())
+                        .event(order.status().name())
+                        .build());
+        var heartbeats = Flux.interval(orderUpdatesProperties.heartbeatInterval())
+                .map(tick -> ServerSentEvent.<Order>builder().comment("heartbeat").build());
+        return Flux.merge(updates, heartbeats);
+    }
 
-        return orderService.getAllOrders(jwt.getSubject());
+    @GetMapping("{id:\\d+}")
+    public Mono<ResponseEntity<Order>> getOrder(@AuthenticationPrincipal Jwt jwt, @PathVariable Long id) {
+        return orderService.getOrder(jwt.getSubject(), id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("{id:\\d+}/history")
+    public Mono<ResponseEntity<List<OrderEvent>>> getOrderHistory(@AuthenticationPrincipal Jwt jwt,
+                                                                  @PathVariable Long id) {
+        return orderService.getOrderEvents(jwt.getSubject(), id)
+                .collectList()
+                .map(events -> events.isEmpty()
+                        ? ResponseEntity.notFound().<List<OrderEvent>>build()
+                        : ResponseEntity.ok(events));
+    }
+
+    @GetMapping("{reference:[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}}")
+    public Mono<ResponseEntity<Order>> getOrderByReference(@AuthenticationPrincipal Jwt jwt,
+                                                           @PathVariable UUID reference) {
+        return orderService.getOrderByReference(jwt.getSubject(), reference)
+                .map(ResponseEntity::ok)
+                .switchIfEmpty(Mono.fromSupplier(() -> orderIntake.isQueued(reference, jwt.getSubject())
+                        ? ResponseEntity.accepted().header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).build()
+                        : ResponseEntity.notFound().build()));
     }
 
     @PostMapping
-    public Mono<Order> submitOrder(@RequestBody @Valid OrderRequest req) {
-        return orderService.submitOrder(req.isbn(), req.quantity());
+    public Mono<Order> submitOrder(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @RequestBody @Valid OrderRequest req
+    ) {
+        if (idempotencyKey == null) {
+            return orderService.submitOrder(req.isbn(), req.quantity());
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The idempotency key is not valid.");
+        }
+        return orderIdempotency.submitOrder(jwt.getSubject(), idempotencyKey, req.isbn(), req.quantity())
+                .onErrorMap(IdempotencyKeyMismatchException.class,
+                        e -> new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage(), e));
+    }
+
+    @PostMapping(headers = PREFER + "=" + RESPOND_ASYNC)
+    public ResponseEntity<OrderReceipt> submitOrderAsync(@AuthenticationPrincipal Jwt jwt,
+                                                         @RequestBody @Valid OrderRequest req) {
+        return orderIntake.enqueue(new OrderLine(req.isbn(), req.quantity()), jwt.getSubject())
+                .map(reference -> ResponseEntity.accepted()
+                        .location(URI.create("/orders/" + reference))
+                        .header(PREFERENCE_APPLIED, RESPOND_ASYNC)
+                        .body(new OrderReceipt(reference)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                        .build());
+    }
+
+    @PostMapping("batch")
+    public Flux<Order> submitOrders(@RequestBody @Valid OrderBatchRequest req) {
+        return orderService.submitOrders(req.orders().stream()
+                .map(orderRequest -> new OrderLine(orderRequest.isbn(), orderRequest.quantity()))
+                .toList());
+    }
+
+    private Mono<ResponseEntity<List<Order>>> getOrderPage(String userId, OrderCursor cursor, int pageSize,
+                                                           String etag) {
+        return orderService.getOrders(userId, cursor, pageSize)
+                .collectList()
+                .map(orders -> {
+                    var response = ResponseEntity.ok()
+                            .eTag(etag)
+                            .cacheControl(CacheControl.noCache().cachePrivate());
+                    if (orders.size() == pageSize) {
+                        var next = OrderCursor.of(orders.get(orders.size() - 1));
+                        response.header(HttpHeaders.LINK, nextPageLink(next, pageSize));
+                    }
+                    return response.body(orders);
+                });
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return orderProperties.pageSize();
+        }
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The page limit must be positive.");
+        }
+        return Math.min(limit, orderProperties.maxPageSize());
+    }
+
+    private static OrderCursor decodeCursor(String after) {
+        if (after == null) {
+            return null;
+        }
+        try {
+            return OrderCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The page cursor is not valid.", e);
+        }
+    }
+
+    private static String nextPageLink(OrderCursor next, int pageSize) {
+        var uri = UriComponentsBuilder.fromPath("/orders")
+                .queryParam("after", next.encode())
+                .queryParam("limit", pageSize)
+                .build()
+                .toUriString();
+        return "<" + uri + ">; rel=\"next\"";
     }
 }
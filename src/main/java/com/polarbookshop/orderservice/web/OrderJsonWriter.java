@@ -0,0 +1,136 @@
+package com.polarbookshop.orderservice.web;
+
+import io.r2dbc.spi.Row;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Writes an orders row as one NDJSON line, in the same shape Jackson produces for {@code Order}.
+ */
+public final class OrderJsonWriter {
+
+    private static final int INITIAL_CAPACITY = 320;
+
+    private static final byte[] ID = ascii("{\"id\":");
+    private static final byte[] BOOK_ISBN = ascii(",\"bookIsbn\":");
+    private static final byte[] BOOK_NAME = ascii(",\"bookName\":");
+    private static final byte[] BOOK_PRICE = ascii(",\"bookPrice\":");
+    private static final byte[] QUANTITY = ascii(",\"quantity\":");
+    private static final byte[] STATUS = ascii(",\"status\":");
+    private static final byte[] CREATED_DATE = ascii(",\"createdDate\":");
+    private static final byte[] LAST_MODIFIED_DATE = ascii(",\"lastModifiedDate\":");
+    private static final byte[] VERSION = ascii(",\"version\":");
+    private static final byte[] CREATED_BY = ascii(",\"createdBy\":");
+    private static final byte[] LAST_MODIFIED_BY = ascii(",\"lastModifiedBy\":");
+    private static final byte[] LINE_END = ascii("}\n");
+    private static final byte[] NULL = ascii("null");
+    private static final byte QUOTE = '"';
+
+    private OrderJsonWriter() {
+    }
+
+    public static DataBuffer writeLine(Row row, DataBufferFactory bufferFactory) {
+        var buffer = bufferFactory.allocateBuffer(INITIAL_CAPACITY);
+        try {
+            buffer.write(ID);
+            writeNumber(buffer, row.get("id", Long.class));
+            buffer.write(BOOK_ISBN);
+            writeString(buffer, row.get("book_isbn", String.class));
+            buffer.write(BOOK_NAME);
+            writeString(buffer, row.get("book_name", String.class));
+            buffer.write(BOOK_PRICE);
+            writeNumber(buffer, row.get("book_price", Double.class));
+            buffer.write(QUANTITY);
+            writeNumber(buffer, row.get("quantity", Integer.class));
+            buffer.write(STATUS);
+            writeString(buffer, row.get("status", String.class));
+            buffer.write(CREATED_DATE);
+            writeTimestamp(buffer, row.get("created_date", LocalDateTime.class));
+            buffer.write(LAST_MODIFIED_DATE);
+            writeTimestamp(buffer, row.get("last_modified_date", LocalDateTime.class));
+            buffer.write(VERSION);
+            writeNumber(buffer, row.get("version", Integer.class));
+            buffer.write(CREATED_BY);
+            writeString(buffer, row.get("created_by", String.class));
+            buffer.write(LAST_MODIFIED_BY);
+            writeString(buffer, row.get("last_modified_by", String.class));
+            buffer.write(LINE_END);
+            return buffer;
+        } catch (RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            throw e;
+        }
+    }
+
+    private static void writeNumber(DataBuffer buffer, Number value) {
+        if (value == null) {
+            buffer.write(NULL);
+        } else {
+            buffer.write(value.toString(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    // Read the same way the entity converter reads them, so both paths agree on the instant.
+    private static void writeTimestamp(DataBuffer buffer, LocalDateTime value) {
+        if (value == null) {
+            buffer.write(NULL);
+        } else {
+            buffer.write(QUOTE);
+            buffer.write(value.atZone(ZoneId.systemDefault()).toInstant().toString(), StandardCharsets.US_ASCII);
+            buffer.write(QUOTE);
+        }
+    }
+
+    private static void writeString(DataBuffer buffer, String value) {
+        if (value == null) {
+            buffer.write(NULL);
+            return;
+        }
+        buffer.write(QUOTE);
+        buffer.write(needsEscaping(value) ? escape(value) : value, StandardCharsets.UTF_8);
+        buffer.write(QUOTE);
+    }
+
+    private static boolean needsEscaping(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            if (c < 0x20 || c == '"' || c == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String escape(String value) {
+        var escaped = new StringBuilder(value.length() + 16);
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\t' -> escaped.append("\\t");
+                case '\b' -> escaped.append("\\b");
+                case '\f' -> escaped.append("\\f");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04X", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,8 @@
+package com.polarbookshop.orderservice.web;
+
+import java.util.UUID;
+
+public record OrderReceipt(
+        UUID reference
+) {
+}
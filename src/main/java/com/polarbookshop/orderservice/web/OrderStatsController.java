@@ -0,0 +1,62 @@
+package com.polarbookshop.orderservice.web;
+
+import com.polarbookshop.orderservice.config.StatsProperties;
+import com.polarbookshop.orderservice.domain.OrderStats;
+import com.polarbookshop.orderservice.domain.OrderStatsReport;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+@RestController
+@RequestMapping("orders/stats")
+public class OrderStatsController {
+
+    private final OrderStats orderStats;
+    private final StatsProperties statsProperties;
+
+    public OrderStatsController(OrderStats orderStats, StatsProperties statsProperties) {
+        this.orderStats = orderStats;
+        this.statsProperties = statsProperties;
+    }
+
+    @GetMapping
+    public Mono<OrderStatsReport> getStats(
+            @RequestParam(required = false) String window,
+            @RequestParam(required = false) Integer top
+    ) {
+        return orderStats.report(window(window), top(top));
+    }
+
+    private Duration window(String window) {
+        if (window == null) {
+            return statsProperties.defaultWindow();
+        }
+        Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The stats window is not valid.", e);
+        }
+        if (duration.isNegative() || duration.isZero()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The stats window must be positive.");
+        }
+        return duration.compareTo(statsProperties.maxWindow()) < 0 ? duration : statsProperties.maxWindow();
+    }
+
+    private int top(Integer top) {
+        if (top == null) {
+            return statsProperties.defaultTop();
+        }
+        if (top < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The top limit must be positive.");
+        }
+        return Math.min(top, statsProperties.maxTop());
+    }
+}
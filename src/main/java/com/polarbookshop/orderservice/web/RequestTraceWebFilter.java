@@ -0,0 +1,44 @@
+package com.polarbookshop.orderservice.web;
+
+import com.polarbookshop.orderservice.config.RequestTrace;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestTraceWebFilter implements WebFilter {
+
+    static final String TRACE_ID_HEADER = "X-Trace-Id";
+    private static final String TRACEPARENT_HEADER = "traceparent";
+    private static final Pattern TRACEPARENT = Pattern.compile("[0-9a-f]{2}-([0-9a-f]{32})-[0-9a-f]{16}-[0-9a-f]{2}");
+    private static final String INVALID_TRACE_ID = "0".repeat(32);
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var traceId = traceId(exchange.getRequest().getHeaders().getFirst(TRACEPARENT_HEADER));
+        exchange.getResponse().getHeaders().set(TRACE_ID_HEADER, traceId);
+        return chain.filter(exchange)
+                .contextWrite(context -> context.put(RequestTrace.CONTEXT_KEY, traceId));
+    }
+
+    private static String traceId(String traceparent) {
+        // The id is echoed back and attached to exemplars, so anything but a well-formed W3C id is replaced.
+        if (traceparent != null) {
+            var matcher = TRACEPARENT.matcher(traceparent);
+            if (matcher.matches() && !traceparent.startsWith("ff") && !matcher.group(1).equals(INVALID_TRACE_ID)) {
+                return matcher.group(1);
+            }
+        }
+        var random = ThreadLocalRandom.current();
+        return HexFormat.of().toHexDigits(random.nextLong()) + HexFormat.of().toHexDigits(random.nextLong());
+    }
+}
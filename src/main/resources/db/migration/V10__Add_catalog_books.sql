@@ -0,0 +1,8 @@
+CREATE TABLE catalog_books (
+    isbn         varchar(255) PRIMARY KEY NOT NULL,
+    title        varchar(255) NOT NULL,
+    author       varchar(255) NOT NULL,
+    price        float8       NOT NULL,
+    version      integer      NOT NULL,
+    updated_date timestamp    NOT NULL
+);
@@ -0,0 +1,27 @@
+CREATE TABLE order_events (
+    id           bigserial    PRIMARY KEY NOT NULL,
+    order_id     bigint       NOT NULL,
+    status       varchar(255) NOT NULL,
+    created_date timestamp    NOT NULL,
+    UNIQUE (order_id, status)
+);
+
+CREATE FUNCTION record_order_event() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' OR OLD.status IS DISTINCT FROM NEW.status THEN
+        INSERT INTO order_events (order_id, status, created_date)
+        VALUES (NEW.id, NEW.status, NEW.last_modified_date)
+        ON CONFLICT (order_id, status) DO NOTHING;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER orders_record_event
+    AFTER INSERT OR UPDATE OF status ON orders
+    FOR EACH ROW EXECUTE FUNCTION record_order_event();
+
+INSERT INTO order_events (order_id, status, created_date)
+SELECT id, status, last_modified_date
+FROM orders_all
+ORDER BY last_modified_date, id;
@@ -0,0 +1,24 @@
+CREATE TABLE order_status_counts (
+    status      varchar(255) PRIMARY KEY NOT NULL,
+    order_count bigint       NOT NULL
+);
+
+CREATE TABLE order_sales_hourly (
+    bucket_start timestamp    NOT NULL,
+    book_isbn    varchar(255) NOT NULL,
+    order_count  bigint       NOT NULL,
+    quantity     bigint       NOT NULL,
+    revenue      float8       NOT NULL,
+    PRIMARY KEY (bucket_start, book_isbn)
+);
+
+INSERT INTO order_status_counts (status, order_count)
+SELECT status, count(*)
+FROM orders_all
+GROUP BY status;
+
+INSERT INTO order_sales_hourly (bucket_start, book_isbn, order_count, quantity, revenue)
+SELECT date_trunc('hour', created_date), book_isbn, count(*), sum(quantity), sum(quantity * book_price)
+FROM orders_all
+WHERE status IN ('ACCEPTED', 'DISPATCHED') AND book_price IS NOT NULL
+GROUP BY date_trunc('hour', created_date), book_isbn;
@@ -0,0 +1,46 @@
+-- Rows caught by the default partition would make creating their month's partition fail, and a default
+-- partition rules out DETACH PARTITION ... CONCURRENTLY. Its rows move to monthly partitions and it goes.
+ALTER TABLE orders DETACH PARTITION orders_default;
+
+DO $$
+DECLARE
+    month_start date;
+BEGIN
+    FOR month_start IN
+        SELECT DISTINCT CAST(date_trunc('month', created_date) AS date) FROM orders_default
+    LOOP
+        PERFORM create_orders_partition(month_start);
+    END LOOP;
+END;
+$$;
+
+INSERT INTO orders SELECT * FROM orders_default;
+
+DROP TABLE orders_default;
+
+SELECT create_orders_partitions(${partitions_ahead});
+
+-- Emptied partitions are detached concurrently by the archiver, which cannot happen inside a function.
+DROP FUNCTION drop_empty_orders_partitions(timestamp);
+
+CREATE FUNCTION find_empty_orders_partitions(older_than timestamp) RETURNS SETOF text AS $$
+DECLARE
+    partition_name text;
+    is_empty boolean;
+BEGIN
+    FOR partition_name IN
+        SELECT child.relname
+        FROM pg_inherits
+        JOIN pg_class parent ON parent.oid = pg_inherits.inhparent
+        JOIN pg_class child ON child.oid = pg_inherits.inhrelid
+        WHERE parent.relname = 'orders'
+          AND child.relname ~ '^orders_p[0-9]{6}$'
+          AND to_date(substring(child.relname FROM 9), 'YYYYMM') + interval '1 month' <= older_than
+    LOOP
+        EXECUTE format('SELECT NOT EXISTS (SELECT 1 FROM %I)', partition_name) INTO is_empty;
+        IF is_empty THEN
+            RETURN NEXT partition_name;
+        END IF;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,3 @@
+CREATE INDEX orders_pending_validation_idx
+    ON orders (id)
+    WHERE status = 'PENDING_VALIDATION';
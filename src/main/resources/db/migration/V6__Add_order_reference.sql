@@ -0,0 +1,5 @@
+ALTER TABLE orders ADD COLUMN reference uuid;
+
+CREATE UNIQUE INDEX orders_reference_idx
+    ON orders (reference)
+    WHERE reference IS NOT NULL;
@@ -0,0 +1,2 @@
+CREATE INDEX orders_created_by_last_modified_date_idx
+    ON orders (created_by, last_modified_date);
@@ -0,0 +1,11 @@
+CREATE TABLE idempotency_keys (
+    created_by          varchar(255) NOT NULL,
+    idempotency_key     varchar(255) NOT NULL,
+    request_fingerprint varchar(64)  NOT NULL,
+    order_id            bigint       NOT NULL,
+    created_date        timestamp    NOT NULL,
+    PRIMARY KEY (created_by, idempotency_key)
+);
+
+CREATE INDEX idempotency_keys_created_date_idx
+    ON idempotency_keys (created_date);
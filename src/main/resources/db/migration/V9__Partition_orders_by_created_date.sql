@@ -0,0 +1,137 @@
+ALTER TABLE orders RENAME TO orders_unpartitioned;
+
+CREATE TABLE orders (
+    id                 bigint NOT NULL DEFAULT nextval('orders_id_seq'),
+    book_isbn          varchar(255) NOT NULL,
+    book_name          varchar(255),
+    book_price         float8,
+    quantity           int NOT NULL,
+    status             varchar(255) NOT NULL,
+    created_date       timestamp NOT NULL,
+    last_modified_date timestamp NOT NULL,
+    version            integer NOT NULL,
+    created_by         varchar(255),
+    last_modified_by   varchar(255),
+    reference          uuid,
+    PRIMARY KEY (id, created_date)
+) PARTITION BY RANGE (created_date);
+
+ALTER SEQUENCE orders_id_seq OWNED BY orders.id;
+
+CREATE TABLE orders_default PARTITION OF orders DEFAULT;
+
+CREATE FUNCTION create_orders_partition(month_start date) RETURNS void AS $$
+BEGIN
+    EXECUTE format(
+        'CREATE TABLE IF NOT EXISTS %I PARTITION OF orders FOR VALUES FROM (%L) TO (%L)',
+        'orders_p' || to_char(month_start, 'YYYYMM'),
+        date_trunc('month', month_start),
+        date_trunc('month', month_start) + interval '1 month');
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION create_orders_partitions(months_ahead int) RETURNS void AS $$
+BEGIN
+    FOR i IN 0..months_ahead LOOP
+        PERFORM create_orders_partition(CAST(date_trunc('month', now() + make_interval(months => i)) AS date));
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION drop_empty_orders_partitions(older_than timestamp) RETURNS int AS $$
+DECLARE
+    partition_name text;
+    dropped int := 0;
+    is_empty boolean;
+BEGIN
+    FOR partition_name IN
+        SELECT child.relname
+        FROM pg_inherits
+        JOIN pg_class parent ON parent.oid = pg_inherits.inhparent
+        JOIN pg_class child ON child.oid = pg_inherits.inhrelid
+        WHERE parent.relname = 'orders'
+          AND child.relname ~ '^orders_p[0-9]{6}$'
+          AND to_date(substring(child.relname FROM 9), 'YYYYMM') + interval '1 month' <= older_than
+    LOOP
+        EXECUTE format('SELECT NOT EXISTS (SELECT 1 FROM %I)', partition_name) INTO is_empty;
+        IF is_empty THEN
+            EXECUTE format('DROP TABLE %I', partition_name);
+            dropped := dropped + 1;
+        END IF;
+    END LOOP;
+    RETURN dropped;
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+DECLARE
+    month_start date;
+BEGIN
+    month_start := COALESCE(CAST(date_trunc('month', (SELECT min(created_date) FROM orders_unpartitioned)) AS date),
+                            CAST(date_trunc('month', now()) AS date));
+    WHILE month_start <= now() + interval '3 months' LOOP
+        PERFORM create_orders_partition(month_start);
+        month_start := month_start + interval '1 month';
+    END LOOP;
+END;
+$$;
+
+INSERT INTO orders (id, book_isbn, book_name, book_price, quantity, status, created_date, last_modified_date,
+                    version, created_by, last_modified_by, reference)
+SELECT id, book_isbn, book_name, book_price, quantity, status, created_date, last_modified_date,
+       version, created_by, last_modified_by, reference
+FROM orders_unpartitioned;
+
+DROP TABLE orders_unpartitioned;
+
+CREATE INDEX orders_created_by_created_date_id_idx
+    ON orders (created_by, created_date, id);
+
+CREATE INDEX orders_created_by_last_modified_date_idx
+    ON orders (created_by, last_modified_date);
+
+CREATE INDEX orders_reference_idx
+    ON orders (reference)
+    WHERE reference IS NOT NULL;
+
+CREATE INDEX orders_pending_validation_idx
+    ON orders (id)
+    WHERE status = 'PENDING_VALIDATION';
+
+CREATE INDEX orders_archivable_idx
+    ON orders (created_date)
+    WHERE status IN ('DISPATCHED', 'REJECTED');
+
+CREATE TABLE orders_archive (
+    id                 bigint PRIMARY KEY NOT NULL,
+    book_isbn          varchar(255) NOT NULL,
+    book_name          varchar(255),
+    book_price         float8,
+    quantity           int NOT NULL,
+    status             varchar(255) NOT NULL,
+    created_date       timestamp NOT NULL,
+    last_modified_date timestamp NOT NULL,
+    version            integer NOT NULL,
+    created_by         varchar(255),
+    last_modified_by   varchar(255),
+    reference          uuid
+) WITH (fillfactor = 100);
+
+CREATE INDEX orders_archive_created_by_created_date_id_idx
+    ON orders_archive (created_by, created_date, id);
+
+CREATE INDEX orders_archive_created_by_last_modified_date_idx
+    ON orders_archive (created_by, last_modified_date);
+
+CREATE INDEX orders_archive_reference_idx
+    ON orders_archive (reference)
+    WHERE reference IS NOT NULL;
+
+CREATE VIEW orders_all AS
+    SELECT id, book_isbn, book_name, book_price, quantity, status, created_date, last_modified_date,
+           version, created_by, last_modified_by, reference
+    FROM orders
+    UNION ALL
+    SELECT id, book_isbn, book_name, book_price, quantity, status, created_date, last_modified_date,
+           version, created_by, last_modified_by, reference
+    FROM orders_archive;
@@ -6,8 +6,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.polarbookshop.orderservice.book.Book;
 import com.polarbookshop.orderservice.book.BookClient;
 import com.polarbookshop.orderservice.domain.Order;
+import com.polarbookshop.orderservice.domain.OrderEvent;
+import com.polarbookshop.orderservice.domain.OrderService;
 import com.polarbookshop.orderservice.domain.OrderStatus;
 import com.polarbookshop.orderservice.order.event.OrderAcceptedMessage;
+import com.polarbookshop.orderservice.order.event.OrderDispatchedMessage;
 import com.polarbookshop.orderservice.web.OrderRequest;
 import dasniko.testcontainers.keycloak.KeycloakContainer;
 import org.junit.Before;
@@ -32,9 +35,12 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import reactor.core.publisher.Mono;
 
 import java.io.IOException;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @Import(TestChannelBinderConfiguration.class)
@@ -57,6 +63,9 @@ class OrderServiceApplicationTests {
 	@MockBean
 	private BookClient bookClient;
 
+	@Autowired
+	private OrderService orderService;
+
 	@Autowired
 	private ObjectMapper objectMapper;
 
@@ -69,6 +78,7 @@ class OrderServiceApplicationTests {
 		registry.add("spring.r2dbc.username", postgresql::getUsername);
 		registry.add("spring.r2dbc.password", postgresql::getPassword);
 		registry.add("spring.flyway.url", postgresql::getJdbcUrl);
+		registry.add("polar.outbox.publisher-confirms", () -> false);
 
 		registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri",
 				() -> keycloakContainer.getAuthServerUrl() + "realms/PolarBookshop");
@@ -106,7 +116,7 @@ class OrderServiceApplicationTests {
 				.expectStatus().is2xxSuccessful()
 				.expectBody(Order.class).returnResult().getResponseBody();
 		assertThat(expectedOrder).isNotNull();
-		assertThat(objectMapper.readValue(output.receive().getPayload(), OrderAcceptedMessage.class))
+		assertThat(objectMapper.readValue(output.receive(5000, "order-accepted").getPayload(), OrderAcceptedMessage.class))
 				.isEqualTo(new OrderAcceptedMessage(expectedOrder.id()));
 
 		webTestClient.get().uri("/orders")
@@ -142,7 +152,7 @@ class OrderServiceApplicationTests {
 				.returnResult()
 				.getResponseBody();
 
-		assertThat(objectMapper.readValue(output.receive().getPayload(), OrderAcceptedMessage.class))
+		assertThat(objectMapper.readValue(output.receive(5000, "order-accepted").getPayload(), OrderAcceptedMessage.class))
 				.isEqualTo(new OrderAcceptedMessage(createdOrder.id()));
 	}
 
@@ -166,6 +176,68 @@ class OrderServiceApplicationTests {
 				});
 	}
 
+	@Test
+	void when_post_request_replayed_with_idempotency_key_then_original_order_returned() {
+		var bookIsbn = "1234567895";
+		var book = new Book(bookIsbn, "title", "author", 9.90);
+		given(bookClient.getBookByIsbn(bookIsbn)).willReturn(Mono.just(book));
+		var orderRequest = new OrderRequest(bookIsbn, 2);
+
+		var firstOrder = webTestClient.post().uri("/orders")
+				.headers(headers -> headers.setBearerAuth(bjornTokens.accessToken()))
+				.header("Idempotency-Key", "replayed-order")
+				.bodyValue(orderRequest)
+				.exchange()
+				.expectStatus().is2xxSuccessful()
+				.expectBody(Order.class).returnResult().getResponseBody();
+		var replayedOrder = webTestClient.post().uri("/orders")
+				.headers(headers -> headers.setBearerAuth(bjornTokens.accessToken()))
+				.header("Idempotency-Key", "replayed-order")
+				.bodyValue(orderRequest)
+				.exchange()
+				.expectStatus().is2xxSuccessful()
+				.expectBody(Order.class).returnResult().getResponseBody();
+
+		assertThat(firstOrder).isNotNull();
+		assertThat(replayedOrder).isNotNull();
+		assertThat(replayedOrder.id()).isEqualTo(firstOrder.id());
+		then(bookClient).should(times(1)).getBookByIsbn(bookIsbn);
+	}
+
+	@Test
+	void when_order_dispatched_twice_then_history_records_transition_once() throws IOException {
+		var bookIsbn = "1234567896";
+		var book = new Book(bookIsbn, "title", "author", 9.90);
+		given(bookClient.getBookByIsbn(bookIsbn)).willReturn(Mono.just(book));
+
+		var createdOrder = webTestClient.post().uri("/orders")
+				.headers(headers -> headers.setBearerAuth(bjornTokens.accessToken()))
+				.bodyValue(new OrderRequest(bookIsbn, 1))
+				.exchange()
+				.expectStatus().is2xxSuccessful()
+				.expectBody(Order.class).returnResult().getResponseBody();
+		assertThat(createdOrder).isNotNull();
+		assertThat(objectMapper.readValue(output.receive(5000, "order-accepted").getPayload(), OrderAcceptedMessage.class))
+				.isEqualTo(new OrderAcceptedMessage(createdOrder.id()));
+
+		var dispatched = List.of(new OrderDispatchedMessage(createdOrder.id()));
+		assertThat(orderService.consumerOrderDispatchedEvent(dispatched).collectList().block()).hasSize(1);
+		assertThat(orderService.consumerOrderDispatchedEvent(dispatched).collectList().block()).isEmpty();
+
+		webTestClient.get().uri("/orders/" + createdOrder.id() + "/history")
+				.headers(headers -> headers.setBearerAuth(bjornTokens.accessToken()))
+				.exchange()
+				.expectStatus().is2xxSuccessful()
+				.expectBodyList(OrderEvent.class).value(events -> assertThat(events)
+						.extracting(OrderEvent::status)
+						.containsExactly(OrderStatus.ACCEPTED, OrderStatus.DISPATCHED));
+
+		webTestClient.get().uri("/orders/" + createdOrder.id() + "/history")
+				.headers(headers -> headers.setBearerAuth(isabelleTokens.accessToken()))
+				.exchange()
+				.expectStatus().isNotFound();
+	}
+
 	@Test
 	void contextLoads() {
 	}
@@ -1,7 +1,12 @@
 package com.polarbookshop.orderservice.book;
 
+import com.polarbookshop.orderservice.config.CatalogReplicaProperties;
+import com.polarbookshop.orderservice.config.ClientProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.jupiter.api.*;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -10,12 +15,30 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 @TestMethodOrder(MethodOrderer.Random.class)
 public class BookClientTests {
 
     private MockWebServer mockWebServer;
     private BookClient bookClient;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void warmUp() throws IOException {
+        // The first request pays for loading and initializing the HTTP client, which alone
+        // can exceed the attempt timeouts the tests below rely on.
+        try (var server = new MockWebServer()) {
+            server.enqueue(new MockResponse());
+            WebClient.create(server.url("/").toString()).get().retrieve().toBodilessEntity().block();
+        }
+    }
 
     @BeforeEach
     void setup() throws IOException {
@@ -24,7 +47,18 @@ public class BookClientTests {
         var webClient = WebClient.builder()
                 .baseUrl(mockWebServer.url("/").uri().toString())
                 .build();
-        this.bookClient = new BookClient(webClient);
+        var clientProperties = new ClientProperties(
+                URI.create(mockWebServer.url("/").toString()),
+                new ClientProperties.CatalogCache(Duration.ofMinutes(10), Duration.ofSeconds(30), 100),
+                new ClientProperties.CatalogClient(Duration.ofSeconds(3), Duration.ofMillis(200), Duration.ofMillis(500),
+                        3, 3, Duration.ofMillis(10), true, Duration.ofMillis(20), 2),
+                new ClientProperties.CatalogCircuitBreaker(50, 100, Duration.ofSeconds(2), 10, 5,
+                        Duration.ofSeconds(10), 2));
+        var catalogReplica = new CatalogReplica(webClient, null,
+                new CatalogReplicaProperties(false, Duration.ofSeconds(30), 500, Duration.ofMillis(50), 3,
+                        Duration.ofMillis(500)), new SimpleMeterRegistry());
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.bookClient = new BookClient(webClient, catalogReplica, clientProperties, meterRegistry);
     }
 
     @AfterEach
@@ -55,4 +89,186 @@ public class BookClientTests {
                         b -> b.isbn().equals(bookIsbn))
                 .verifyComplete();
     }
+
+    @Test
+    void when_book_requested_twice_then_catalog_called_once() {
+        var bookIsbn = "1234567891";
+        var mockResponse = new MockResponse()
+                .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .setBody("""
+                        {
+                            "isbn": %s,
+                            "title": "Title",
+                            "author": "Author",
+                            "price": 9.90,
+                            "publisher": "Polarsophia"
+                        }
+                        """.formatted(bookIsbn));
+        mockWebServer.enqueue(mockResponse);
+
+        StepVerifier.create(bookClient.getBookByIsbn(bookIsbn))
+                .expectNextMatches(b -> b.isbn().equals(bookIsbn))
+                .verifyComplete();
+        StepVerifier.create(bookClient.getBookByIsbn(bookIsbn))
+                .expectNextMatches(b -> b.isbn().equals(bookIsbn))
+                .verifyComplete();
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void when_book_not_found_then_negative_result_cached() {
+        var bookIsbn = "1234567892";
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404));
+
+        StepVerifier.create(bookClient.getBookByIsbn(bookIsbn))
+                .verifyComplete();
+        StepVerifier.create(bookClient.getBookByIsbn(bookIsbn))
+                .verifyComplete();
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void when_catalog_attempt_times_out_then_retry() {
+        var bookIsbn = "1234567893";
+        var body = """
+                {
+                    "isbn": %s,
+                    "title": "Title",
+                    "author": "Author",
+                    "price": 9.90,
+                    "publisher": "Polarsophia"
+                }
+                """.formatted(bookIsbn);
+        mockWebServer.enqueue(new MockResponse()
+                .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .setHeadersDelay(2, TimeUnit.SECONDS)
+                .setBody(body));
+        mockWebServer.enqueue(new MockResponse()
+                .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .setBody(body));
+
+        StepVerifier.create(bookClient.getBookByIsbn(bookIsbn))
+                .expectNextMatches(b -> b.isbn().equals(bookIsbn))
+                .verifyComplete();
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void when_catalog_fails_then_unavailable() {
+        var bookIsbn = "1234567894";
+        for (int i = 0; i < 4; i++) {
+            mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        }
+
+        StepVerifier.create(bookClient.getBookByIsbn(bookIsbn))
+                .expectError(CatalogUnavailableException.class)
+                .verify();
+    }
+
+    @Test
+    void when_lookup_not_subscribed_then_catalog_not_called() {
+        bookClient.getBookByIsbn("1234567896");
+
+        assertThat(mockWebServer.getRequestCount()).isZero();
+    }
+
+    @Test
+    void when_lookup_failed_then_resubscription_fetches_again() {
+        var bookIsbn = "1234567897";
+        for (int i = 0; i < 4; i++) {
+            mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        }
+        mockWebServer.enqueue(new MockResponse()
+                .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .setBody("""
+                        {
+                            "isbn": %s,
+                            "title": "Title",
+                            "author": "Author",
+                            "price": 9.90,
+                            "publisher": "Polarsophia"
+                        }
+                        """.formatted(bookIsbn)));
+
+        StepVerifier.create(bookClient.getBookByIsbn(bookIsbn).retry(1))
+                .expectNextMatches(b -> b.isbn().equals(bookIsbn))
+                .verifyComplete();
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(5);
+    }
+
+    @Test
+    void when_attempt_slower_than_hedge_delay_then_hedged_request_wins() throws InterruptedException {
+        for (int i = 0; i < 20; i++) {
+            mockWebServer.enqueue(bookResponse("12345600" + String.format("%02d", i)));
+        }
+        for (int i = 0; i < 20; i++) {
+            bookClient.getBookByIsbn("12345600" + String.format("%02d", i)).block();
+        }
+        // The latency budget is derived at most once a second.
+        Thread.sleep(1100);
+        var bookIsbn = "1234567898";
+        mockWebServer.enqueue(bookResponse(bookIsbn).setHeadersDelay(150, TimeUnit.MILLISECONDS));
+        mockWebServer.enqueue(bookResponse(bookIsbn));
+
+        StepVerifier.create(bookClient.getBookByIsbn(bookIsbn))
+                .expectNextMatches(b -> b.isbn().equals(bookIsbn))
+                .verifyComplete();
+
+        assertThat(meterRegistry.counter("catalog.requests.hedged").count()).isEqualTo(1);
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(22);
+    }
+
+    @Test
+    void when_circuit_open_then_fail_fast() {
+        var bookIsbn = "1234567895";
+        bookClient.circuitBreaker().transitionToOpenState();
+
+        StepVerifier.create(bookClient.getBookByIsbn(bookIsbn))
+                .expectError(CatalogUnavailableException.class)
+                .verify();
+
+        assertThat(bookClient.isCatalogAvailable()).isFalse();
+        assertThat(mockWebServer.getRequestCount()).isZero();
+    }
+
+    @Test
+    void when_many_books_looked_up_then_catalog_requests_bounded() {
+        var inFlight = new AtomicInteger();
+        var maxInFlight = new AtomicInteger();
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                Thread.sleep(50);
+                inFlight.decrementAndGet();
+                return bookResponse(request.getPath().substring("/books/".length()));
+            }
+        });
+        var isbns = List.of("1234567001", "1234567002", "1234567003", "1234567004", "1234567005", "1234567006");
+
+        StepVerifier.create(bookClient.getBooksByIsbn(isbns))
+                .assertNext(lookups -> assertThat(lookups).containsOnlyKeys(isbns))
+                .verifyComplete();
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(6);
+        assertThat(maxInFlight).hasValue(2);
+    }
+
+    private static MockResponse bookResponse(String isbn) {
+        return new MockResponse()
+                .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .setBody("""
+                        {
+                            "isbn": %s,
+                            "title": "Title",
+                            "author": "Author",
+                            "price": 9.90,
+                            "publisher": "Polarsophia"
+                        }
+                        """.formatted(isbn));
+    }
 }
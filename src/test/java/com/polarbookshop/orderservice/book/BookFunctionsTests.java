@@ -0,0 +1,84 @@
+package com.polarbookshop.orderservice.book;
+
+import com.polarbookshop.orderservice.config.CatalogReplicaProperties;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+
+public class BookFunctionsTests {
+
+    private static final CatalogReplicaProperties PROPERTIES = new CatalogReplicaProperties(true,
+            Duration.ofSeconds(30), 10, Duration.ofMillis(10), 2, Duration.ofMillis(10));
+
+    private final CatalogReplica catalogReplica = Mockito.mock(CatalogReplica.class);
+
+    @Test
+    void when_apply_fails_transiently_then_retried() {
+        given(catalogReplica.apply(any()))
+                .willReturn(Mono.error(new IllegalStateException("boom")))
+                .willReturn(Mono.error(new IllegalStateException("boom")))
+                .willReturn(Mono.empty());
+
+        new BookFunctions().bookUpdated(catalogReplica, PROPERTIES).accept(Flux.just(update("1234567890")));
+
+        then(catalogReplica).should(timeout(5000).times(3)).apply(any());
+        then(catalogReplica).should(after(200).never()).markStale();
+    }
+
+    @Test
+    void when_apply_keeps_failing_then_replica_marked_stale() {
+        given(catalogReplica.apply(any())).willReturn(Mono.error(new IllegalStateException("boom")));
+
+        new BookFunctions().bookUpdated(catalogReplica, PROPERTIES).accept(Flux.just(update("1234567890")));
+
+        then(catalogReplica).should(timeout(5000)).markStale();
+        then(catalogReplica).should(times(3)).apply(any());
+    }
+
+    @Test
+    void when_update_incomplete_then_ignored() {
+        new BookFunctions().bookUpdated(catalogReplica, PROPERTIES)
+                .accept(Flux.just(new BookUpdatedMessage("1234567890", null, "Author", 9.90, 1)));
+
+        then(catalogReplica).should(after(200).never()).apply(any());
+    }
+
+    @Test
+    void when_windows_close_while_batch_applied_then_updates_kept() {
+        var scheduler = VirtualTimeScheduler.getOrSet();
+        try {
+            var firstBatch = Sinks.<Void>empty();
+            given(catalogReplica.apply(any())).willReturn(firstBatch.asMono()).willReturn(Mono.empty());
+            var updates = Sinks.many().multicast().<BookUpdatedMessage>onBackpressureBuffer();
+            new BookFunctions().bookUpdated(catalogReplica, PROPERTIES).accept(updates.asFlux());
+
+            for (int i = 0; i < 100; i++) {
+                updates.tryEmitNext(update("12345678%02d".formatted(i)));
+                scheduler.advanceTimeBy(Duration.ofMillis(10));
+            }
+            firstBatch.tryEmitEmpty();
+
+            then(catalogReplica).should(times(100)).apply(any());
+            then(catalogReplica).should(never()).markStale();
+        } finally {
+            VirtualTimeScheduler.reset();
+        }
+    }
+
+    private static BookUpdatedMessage update(String isbn) {
+        return new BookUpdatedMessage(isbn, "Title", "Author", 9.90, 1);
+    }
+}
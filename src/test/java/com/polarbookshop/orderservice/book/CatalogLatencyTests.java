@@ -0,0 +1,53 @@
+package com.polarbookshop.orderservice.book;
+
+import com.polarbookshop.orderservice.config.ClientProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CatalogLatencyTests {
+
+    private static final ClientProperties.CatalogClient PROPERTIES = new ClientProperties.CatalogClient(
+            Duration.ofSeconds(3), Duration.ofMillis(200), Duration.ofSeconds(1), 3, 3, Duration.ofMillis(100),
+            true, Duration.ofMillis(20), 16);
+
+    @Test
+    void when_few_samples_then_maximum_timeout_without_hedging() {
+        var latency = new CatalogLatency(PROPERTIES, new SimpleMeterRegistry());
+        latency.record(Duration.ofMillis(10).toNanos());
+
+        assertThat(latency.budget()).isEqualTo(new CatalogLatency.Budget(Duration.ofSeconds(1), null));
+    }
+
+    @Test
+    void when_fast_samples_then_tight_budget() {
+        var latency = new CatalogLatency(PROPERTIES, new SimpleMeterRegistry());
+        for (int i = 0; i < 100; i++) {
+            latency.record(Duration.ofMillis(10).toNanos());
+        }
+
+        var budget = latency.budget();
+
+        assertThat(budget.attemptTimeout()).isEqualTo(Duration.ofMillis(200));
+        assertThat(budget.hedgeDelay()).isEqualTo(Duration.ofMillis(20));
+    }
+
+    @Test
+    void when_timed_out_attempts_recorded_then_budget_widens() {
+        var latency = new CatalogLatency(PROPERTIES, new SimpleMeterRegistry());
+        for (int i = 0; i < 90; i++) {
+            latency.record(Duration.ofMillis(10).toNanos());
+        }
+        for (int i = 0; i < 10; i++) {
+            latency.record(Duration.ofMillis(200).toNanos());
+        }
+
+        var budget = latency.budget();
+
+        assertThat(budget.attemptTimeout()).isGreaterThan(Duration.ofMillis(500));
+        assertThat(budget.hedgeDelay()).isGreaterThan(Duration.ofMillis(100));
+    }
+}
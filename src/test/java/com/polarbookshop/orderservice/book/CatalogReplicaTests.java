@@ -0,0 +1,180 @@
+package com.polarbookshop.orderservice.book;
+
+import com.polarbookshop.orderservice.config.CatalogReplicaProperties;
+import com.polarbookshop.orderservice.config.ClientProperties;
+import com.polarbookshop.orderservice.config.DataConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataR2dbcTest
+@Import(DataConfig.class)
+@Testcontainers
+public class CatalogReplicaTests {
+
+    @Container
+    static PostgreSQLContainer<?> postgresql = new PostgreSQLContainer<>("postgres:14.4");
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    private MockWebServer mockWebServer;
+    private WebClient webClient;
+    private CatalogReplica catalogReplica;
+
+    @DynamicPropertySource
+    static void postgresqlProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.r2dbc.url", CatalogReplicaTests::r2dbcUrl);
+        registry.add("spring.r2dbc.username", postgresql::getUsername);
+        registry.add("spring.r2dbc.password", postgresql::getPassword);
+        registry.add("spring.flyway.url", postgresql::getJdbcUrl);
+    }
+
+    private static String r2dbcUrl() {
+        return String.format("r2dbc:postgresql://%s:%s/%s",
+                postgresql.getHost(),
+                postgresql.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT),
+                postgresql.getDatabaseName());
+    }
+
+    @BeforeEach
+    void setup() throws IOException {
+        databaseClient.sql("DELETE FROM catalog_books").then().block();
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+        webClient = WebClient.builder()
+                .baseUrl(mockWebServer.url("/").uri().toString())
+                .build();
+        catalogReplica = new CatalogReplica(webClient, databaseClient,
+                new CatalogReplicaProperties(true, Duration.ofSeconds(30), 500, Duration.ofMillis(50), 3,
+                        Duration.ofMillis(500)),
+                new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void clean() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    void when_older_version_applied_then_ignored() {
+        StepVerifier.create(catalogReplica.apply(List.of(update("1234567890", 12.0, 2)))).verifyComplete();
+        StepVerifier.create(catalogReplica.apply(List.of(update("1234567890", 9.90, 1)))).verifyComplete();
+
+        StepVerifier.create(databaseClient.sql("SELECT price, version FROM catalog_books WHERE isbn = '1234567890'")
+                        .map(row -> row.get("price", Double.class) + "@" + row.get("version", Integer.class))
+                        .one())
+                .expectNext("12.0@2")
+                .verifyComplete();
+
+        enqueueSnapshot("""
+                [{"isbn": "1234567890", "title": "Title", "author": "Author", "price": 9.90, "version": 1}]
+                """);
+        catalogReplica.refresh();
+
+        assertThat(catalogReplica.find("1234567890")).map(Book::price).contains(12.0);
+    }
+
+    @Test
+    void when_snapshot_refreshed_then_deleted_books_removed() {
+        StepVerifier.create(catalogReplica.apply(List.of(
+                update("1234567891", 9.90, 1),
+                update("1234567892", 9.90, 1)))).verifyComplete();
+        enqueueSnapshot("""
+                [
+                    {"isbn": "1234567891", "title": "Title", "author": "Author", "price": 9.90, "version": 1},
+                    {"isbn": "1234567893", "title": "Title", "author": "Author", "price": 9.90, "version": 1}
+                ]
+                """);
+
+        catalogReplica.refresh();
+
+        assertThat(catalogReplica.find("1234567891")).isPresent();
+        assertThat(catalogReplica.find("1234567893")).isPresent();
+        assertThat(catalogReplica.find("1234567892")).isEmpty();
+        StepVerifier.create(databaseClient.sql("SELECT isbn FROM catalog_books ORDER BY isbn")
+                        .map(row -> row.get("isbn", String.class))
+                        .all())
+                .expectNext("1234567891", "1234567893")
+                .verifyComplete();
+    }
+
+    @Test
+    void when_replica_misses_or_is_stale_then_lookup_falls_back_to_catalog() {
+        enqueueSnapshot("""
+                [{"isbn": "1234567894", "title": "Title", "author": "Author", "price": 9.90, "version": 1}]
+                """);
+        catalogReplica.refresh();
+        var bookClient = new BookClient(webClient, catalogReplica, clientProperties(), new SimpleMeterRegistry());
+
+        StepVerifier.create(bookClient.getBookByIsbn("1234567894"))
+                .expectNextMatches(book -> book.isbn().equals("1234567894"))
+                .verifyComplete();
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(1);
+
+        mockWebServer.enqueue(bookResponse("1234567895"));
+        StepVerifier.create(bookClient.getBookByIsbn("1234567895"))
+                .expectNextMatches(book -> book.isbn().equals("1234567895"))
+                .verifyComplete();
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+
+        catalogReplica.markStale();
+        assertThat(catalogReplica.find("1234567894")).isEmpty();
+        enqueueSnapshot("""
+                [{"isbn": "1234567894", "title": "Title", "author": "Author", "price": 9.90, "version": 1}]
+                """);
+        catalogReplica.resynchronize();
+        assertThat(catalogReplica.find("1234567894")).isPresent();
+    }
+
+    private void enqueueSnapshot(String body) {
+        mockWebServer.enqueue(new MockResponse()
+                .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .setBody(body));
+    }
+
+    private ClientProperties clientProperties() {
+        return new ClientProperties(
+                URI.create(mockWebServer.url("/").toString()),
+                new ClientProperties.CatalogCache(Duration.ofMinutes(10), Duration.ofSeconds(30), 100),
+                new ClientProperties.CatalogClient(Duration.ofSeconds(3), Duration.ofMillis(200), Duration.ofMillis(500),
+                        3, 3, Duration.ofMillis(10), false, Duration.ofMillis(20), 16),
+                new ClientProperties.CatalogCircuitBreaker(50, 100, Duration.ofSeconds(2), 10, 5,
+                        Duration.ofSeconds(10), 2));
+    }
+
+    private static MockResponse bookResponse(String isbn) {
+        return new MockResponse()
+                .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .setBody("""
+                        {"isbn": "%s", "title": "Title", "author": "Author", "price": 9.90}
+                        """.formatted(isbn));
+    }
+
+    private static BookUpdatedMessage update(String isbn, double price, int version) {
+        return new BookUpdatedMessage(isbn, "Title", "Author", price, version);
+    }
+}
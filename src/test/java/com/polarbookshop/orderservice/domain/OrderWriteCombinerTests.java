@@ -0,0 +1,94 @@
+package com.polarbookshop.orderservice.domain;
+
+import com.polarbookshop.orderservice.config.WriteCombinerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderWriteCombinerTests {
+
+    @Test
+    void when_batch_written_then_each_caller_gets_its_own_order() {
+        var batches = new AtomicInteger();
+        var combiner = combiner(2, 10, orders -> {
+            batches.incrementAndGet();
+            return Flux.fromIterable(orders).map(order -> withId(order, Long.valueOf(order.bookIsbn())));
+        });
+
+        StepVerifier.create(Mono.zip(combiner.write(order("1234567891")), combiner.write(order("1234567892"))))
+                .assertNext(saved -> {
+                    assertThat(saved.getT1().id()).isEqualTo(1234567891L);
+                    assertThat(saved.getT2().id()).isEqualTo(1234567892L);
+                })
+                .verifyComplete();
+        assertThat(batches).hasValue(1);
+    }
+
+    @Test
+    void when_capacity_exceeded_then_write_completes_empty() {
+        var combiner = combiner(1, 1, orders -> Flux.never());
+
+        combiner.write(order("1234567891")).subscribe();
+
+        StepVerifier.create(combiner.write(order("1234567892")))
+                .verifyComplete();
+    }
+
+    @Test
+    void when_batch_fails_then_every_caller_gets_the_error() {
+        var combiner = combiner(2, 10, orders -> Flux.error(new IllegalStateException("Database unavailable")));
+
+        StepVerifier.create(Mono.zip(failure(combiner.write(order("1234567891"))),
+                        failure(combiner.write(order("1234567892")))))
+                .assertNext(errors -> {
+                    assertThat(errors.getT1()).isInstanceOf(IllegalStateException.class);
+                    assertThat(errors.getT2()).isInstanceOf(IllegalStateException.class);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void when_fewer_orders_saved_than_written_then_every_caller_gets_an_error() {
+        var combiner = combiner(2, 10, orders -> Flux.just(withId(orders.get(0), 100L)));
+
+        StepVerifier.create(Mono.zip(failure(combiner.write(order("1234567891"))),
+                        failure(combiner.write(order("1234567892")))))
+                .assertNext(errors -> {
+                    assertThat(errors.getT1()).isInstanceOf(IllegalStateException.class);
+                    assertThat(errors.getT2()).isInstanceOf(IllegalStateException.class);
+                })
+                .verifyComplete();
+    }
+
+    private static OrderWriteCombiner combiner(int batchSize, int capacity,
+                                               Function<List<Order>, Flux<Order>> batchWriter) {
+        var combiner = new OrderWriteCombiner(
+                new WriteCombinerProperties(true, batchSize, Duration.ofSeconds(1), capacity, 2),
+                Mono::empty, new OrderMetrics(new SimpleMeterRegistry()));
+        combiner.start(batchWriter);
+        return combiner;
+    }
+
+    private static Mono<Throwable> failure(Mono<Order> write) {
+        return write.then(Mono.<Throwable>empty()).onErrorResume(Mono::just);
+    }
+
+    private static Order order(String isbn) {
+        return Order.of(isbn, "Title", 9.90, 1, OrderStatus.ACCEPTED);
+    }
+
+    private static Order withId(Order order, Long id) {
+        return new Order(id, order.bookIsbn(), order.bookName(), order.bookPrice(), order.quantity(),
+                order.status(), order.createdDate(), order.lastModifiedDate(), order.version(),
+                order.createdBy(), order.lastModifiedBy());
+    }
+}
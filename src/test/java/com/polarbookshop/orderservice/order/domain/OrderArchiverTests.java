@@ -0,0 +1,160 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.config.ArchiveProperties;
+import com.polarbookshop.orderservice.config.DataConfig;
+import com.polarbookshop.orderservice.domain.OrderArchiver;
+import com.polarbookshop.orderservice.domain.OrderRepository;
+import com.polarbookshop.orderservice.domain.OrderStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataR2dbcTest
+@Import(DataConfig.class)
+@Testcontainers
+public class OrderArchiverTests {
+
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @Container
+    static PostgreSQLContainer<?> postgresql = new PostgreSQLContainer<>("postgres:14.4");
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private OrderRepository orderRepo;
+
+    private OrderArchiver orderArchiver;
+
+    @DynamicPropertySource
+    static void postgresqlProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.r2dbc.url", OrderArchiverTests::r2dbcUrl);
+        registry.add("spring.r2dbc.username", postgresql::getUsername);
+        registry.add("spring.r2dbc.password", postgresql::getPassword);
+        registry.add("spring.flyway.url", postgresql::getJdbcUrl);
+    }
+
+    private static String r2dbcUrl() {
+        return String.format("r2dbc:postgresql://%s:%s/%s",
+                postgresql.getHost(),
+                postgresql.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT),
+                postgresql.getDatabaseName());
+    }
+
+    @BeforeEach
+    void setup() {
+        orderArchiver = new OrderArchiver(databaseClient, new ArchiveProperties(Duration.ofDays(90), 10, 3));
+    }
+
+    @Test
+    void when_partitions_created_then_current_and_upcoming_months_exist() {
+        orderArchiver.createPartitions();
+
+        var current = YearMonth.now(ZoneOffset.UTC);
+        assertThat(partitions()).contains(
+                partition(current), partition(current.plusMonths(1)),
+                partition(current.plusMonths(2)), partition(current.plusMonths(3)))
+                .doesNotContain("orders_default");
+    }
+
+    @Test
+    void when_settled_orders_past_horizon_then_archived_and_still_readable() {
+        var month = YearMonth.now(ZoneOffset.UTC).minusYears(2);
+        createPartition(month);
+        var dispatchedId = insertOrder(month, OrderStatus.DISPATCHED);
+        var acceptedId = insertOrder(month, OrderStatus.ACCEPTED);
+
+        orderArchiver.archiveOrders();
+
+        assertThat(ids("orders")).contains(acceptedId).doesNotContain(dispatchedId);
+        assertThat(ids("orders_archive")).contains(dispatchedId).doesNotContain(acceptedId);
+        StepVerifier.create(orderRepo.findByIdAndCreatedBy(dispatchedId, "bjorn"))
+                .expectNextMatches(order -> order.status() == OrderStatus.DISPATCHED)
+                .verifyComplete();
+        assertThat(partitions()).contains(partition(month));
+    }
+
+    @Test
+    void when_partition_emptied_by_archiving_then_dropped() {
+        var month = YearMonth.now(ZoneOffset.UTC).minusYears(3);
+        createPartition(month);
+        var rejectedId = insertOrder(month, OrderStatus.REJECTED);
+
+        orderArchiver.archiveOrders();
+
+        assertThat(partitions()).doesNotContain(partition(month));
+        assertThat(ids("orders_archive")).contains(rejectedId);
+        StepVerifier.create(orderRepo.findByIdAndCreatedBy(rejectedId, "bjorn"))
+                .expectNextMatches(order -> order.status() == OrderStatus.REJECTED)
+                .verifyComplete();
+    }
+
+    private void createPartition(YearMonth month) {
+        databaseClient.sql("SELECT create_orders_partition(CAST(:month AS date))")
+                .bind("month", month.atDay(1).toString())
+                .then()
+                .block();
+    }
+
+    private Long insertOrder(YearMonth month, OrderStatus status) {
+        var createdDate = LocalDateTime.of(month.atDay(10), LocalTime.NOON);
+        return databaseClient.sql("""
+                        INSERT INTO orders (book_isbn, book_name, book_price, quantity, status, created_date,
+                                            last_modified_date, version, created_by, last_modified_by)
+                        VALUES ('1234567890', 'Title - Author', 9.90, 1, :status, :createdDate, :createdDate, 1,
+                                'bjorn', 'bjorn')
+                        RETURNING id
+                        """)
+                .bind("status", status.name())
+                .bind("createdDate", createdDate)
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .block();
+    }
+
+    private List<String> partitions() {
+        return databaseClient.sql("""
+                        SELECT child.relname AS name
+                        FROM pg_inherits
+                        JOIN pg_class parent ON parent.oid = pg_inherits.inhparent
+                        JOIN pg_class child ON child.oid = pg_inherits.inhrelid
+                        WHERE parent.relname = 'orders'
+                        """)
+                .map(row -> row.get("name", String.class))
+                .all()
+                .collectList()
+                .block();
+    }
+
+    private List<Long> ids(String table) {
+        return databaseClient.sql("SELECT id FROM " + table)
+                .map(row -> row.get("id", Long.class))
+                .all()
+                .collectList()
+                .block();
+    }
+
+    private static String partition(YearMonth month) {
+        return "orders_p" + month.format(PARTITION_MONTH);
+    }
+}
@@ -0,0 +1,100 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.config.IntakeProperties;
+import com.polarbookshop.orderservice.domain.Order;
+import com.polarbookshop.orderservice.domain.OrderIntake;
+import com.polarbookshop.orderservice.domain.OrderLine;
+import com.polarbookshop.orderservice.domain.OrderMetrics;
+import com.polarbookshop.orderservice.domain.OrderService;
+import com.polarbookshop.orderservice.domain.QueuedOrder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.timeout;
+
+public class OrderIntakeTests {
+
+    private OrderService orderService;
+    private SimpleMeterRegistry meterRegistry;
+    private OrderIntake orderIntake;
+
+    @BeforeEach
+    void setup() {
+        orderService = Mockito.mock(OrderService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        orderIntake = new OrderIntake(orderService, new OrderMetrics(meterRegistry), new IntakeProperties(100, 10, 1),
+                meterRegistry);
+        orderIntake.start();
+    }
+
+    @AfterEach
+    void stop() {
+        orderIntake.stop();
+    }
+
+    @Test
+    void when_queued_orders_cannot_be_persisted_then_recorded_as_rejected() {
+        given(orderService.submitQueuedOrders(any())).willReturn(Flux.error(new IllegalStateException("boom")));
+        given(orderService.rejectQueuedOrders(any())).willAnswer(invocation -> Flux.fromIterable(
+                invocation.<List<QueuedOrder>>getArgument(0)).map(queued -> OrderService.buildRejectedOrder(
+                queued.line().isbn(), queued.line().quantity())));
+
+        var reference = orderIntake.enqueue(new OrderLine("1234567890", 1), "bjorn").orElseThrow();
+
+        then(orderService).should(timeout(5000)).rejectQueuedOrders(argThat(queued ->
+                queued.size() == 1 && queued.get(0).reference().equals(reference)));
+        assertThat(meterRegistry.counter("orders.intake.failed").count()).isZero();
+    }
+
+    @Test
+    void when_one_order_poisons_the_batch_then_the_others_are_persisted() {
+        var healthy = new OrderLine("1234567891", 1);
+        var poisoned = new OrderLine("1234567890", 1);
+        given(orderService.submitQueuedOrders(any())).willAnswer(invocation -> {
+            List<QueuedOrder> queued = invocation.getArgument(0);
+            return queued.stream().anyMatch(order -> order.line().equals(poisoned))
+                    ? Flux.<Order>error(new IllegalStateException("boom"))
+                    : Flux.just(OrderService.buildRejectedOrder(healthy.isbn(), healthy.quantity()));
+        });
+        given(orderService.rejectQueuedOrders(any())).willReturn(Flux.empty());
+
+        var healthyReference = orderIntake.enqueue(healthy, "bjorn").orElseThrow();
+        var poisonedReference = orderIntake.enqueue(poisoned, "bjorn").orElseThrow();
+
+        then(orderService).should(timeout(5000)).rejectQueuedOrders(argThat(queued ->
+                queued.size() == 1 && queued.get(0).reference().equals(poisonedReference)));
+        then(orderService).should(timeout(5000)).submitQueuedOrders(argThat(queued ->
+                queued.size() == 1 && queued.get(0).reference().equals(healthyReference)));
+    }
+
+    @Test
+    void when_rejection_cannot_be_recorded_either_then_failure_reported() throws InterruptedException {
+        given(orderService.submitQueuedOrders(any())).willReturn(Flux.error(new IllegalStateException("boom")));
+        given(orderService.rejectQueuedOrders(any())).willReturn(Flux.error(new IllegalStateException("down")));
+
+        var reference = orderIntake.enqueue(new OrderLine("1234567890", 1), "bjorn").orElseThrow();
+
+        then(orderService).should(timeout(5000)).rejectQueuedOrders(any());
+        await(() -> !orderIntake.isQueued(reference, "bjorn"));
+        assertThat(meterRegistry.counter("orders.intake.failed").count()).isEqualTo(1);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
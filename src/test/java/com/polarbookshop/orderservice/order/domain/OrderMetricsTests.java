@@ -0,0 +1,67 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.book.Book;
+import com.polarbookshop.orderservice.book.CatalogUnavailableException;
+import com.polarbookshop.orderservice.domain.OrderMetrics;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OrderMetricsTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OrderMetrics orderMetrics = new OrderMetrics(meterRegistry);
+
+    @Test
+    void when_book_found_or_missing_then_outcome_recorded() {
+        StepVerifier.create(lookup(Mono.just(new Book("1234567890", "Title", "Author", 9.90))))
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(lookup(Mono.empty())).verifyComplete();
+
+        assertThat(count(OrderMetrics.FOUND)).isEqualTo(1);
+        assertThat(count(OrderMetrics.NOT_FOUND)).isEqualTo(1);
+    }
+
+    @Test
+    void when_retries_exhausted_on_timeout_then_timeout_recorded() {
+        var error = new CatalogUnavailableException("1234567890",
+                Exceptions.retryExhausted("Retries exhausted: 3/3", new TimeoutException()));
+
+        StepVerifier.create(lookup(Mono.error(error))).verifyError(CatalogUnavailableException.class);
+
+        assertThat(count(OrderMetrics.TIMEOUT)).isEqualTo(1);
+        assertThat(count(OrderMetrics.NOT_FOUND)).isZero();
+    }
+
+    @Test
+    void when_circuit_open_or_failed_then_outcome_recorded() {
+        var open = CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("catalog"));
+
+        StepVerifier.create(lookup(Mono.error(new CatalogUnavailableException("1234567890", open))))
+                .verifyError(CatalogUnavailableException.class);
+        StepVerifier.create(lookup(Mono.error(new CatalogUnavailableException("1234567890",
+                        new IllegalStateException("boom")))))
+                .verifyError(CatalogUnavailableException.class);
+
+        assertThat(count(OrderMetrics.CIRCUIT_OPEN)).isEqualTo(1);
+        assertThat(count(OrderMetrics.ERROR)).isEqualTo(1);
+    }
+
+    private Mono<Book> lookup(Mono<Book> source) {
+        return orderMetrics.time(OrderMetrics.SUBMIT, "catalog", book -> OrderMetrics.FOUND, source);
+    }
+
+    private long count(String outcome) {
+        var timer = meterRegistry.find(OrderMetrics.SUBMIT).tag("stage", "catalog").tag("outcome", outcome).timer();
+        return timer != null ? timer.count() : 0;
+    }
+}
@@ -1,6 +1,8 @@
 package com.polarbookshop.orderservice.order.domain;
 
+import com.polarbookshop.orderservice.book.Book;
 import com.polarbookshop.orderservice.config.DataConfig;
+import com.polarbookshop.orderservice.domain.Order;
 import com.polarbookshop.orderservice.domain.OrderRepository;
 import com.polarbookshop.orderservice.domain.OrderService;
 import com.polarbookshop.orderservice.domain.OrderStatus;
@@ -16,8 +18,15 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import reactor.test.StepVerifier;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 @DataR2dbcTest
 @Import(DataConfig.class)
 @Testcontainers
@@ -79,4 +88,72 @@ public class OrderRepositoryR2dbcTests {
                         order.lastModifiedBy().equals("elaine"))
                 .verifyComplete();
     }
+
+    @Test
+    void when_orders_dispatched_then_status_updated_in_one_statement() {
+        var book = new Book("1234567891", "Title", "Author", 9.90);
+        var first = orderRepo.save(OrderService.buildAcceptedOrder(book, 1)).block();
+        var second = orderRepo.save(OrderService.buildAcceptedOrder(book, 2)).block();
+
+        StepVerifier.create(orderRepo.markDispatched(List.of(first.id(), second.id(), 377L))
+                        .map(Order::id)
+                        .collectList())
+                .expectNextMatches(ids -> ids.size() == 2 && ids.containsAll(List.of(first.id(), second.id())))
+                .verifyComplete();
+        StepVerifier.create(orderRepo.findById(first.id()))
+                .expectNextMatches(order -> order.status() == OrderStatus.DISPATCHED
+                        && order.version() == first.version() + 1)
+                .verifyComplete();
+    }
+
+    @Test
+    void when_dispatch_redelivered_then_order_not_updated_again() {
+        var book = new Book("1234567891", "Title", "Author", 9.90);
+        var order = orderRepo.save(OrderService.buildAcceptedOrder(book, 1)).block();
+
+        StepVerifier.create(orderRepo.markDispatched(List.of(order.id())))
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(orderRepo.markDispatched(List.of(order.id())))
+                .verifyComplete();
+    }
+
+    @Test
+    void when_order_not_accepted_then_not_dispatched() {
+        var rejected = orderRepo.save(OrderService.buildRejectedOrder("1234567890", 1)).block();
+        var pending = orderRepo.save(Order.of("1234567890", null, null, 1, OrderStatus.PENDING_VALIDATION)).block();
+
+        StepVerifier.create(orderRepo.markDispatched(List.of(rejected.id(), pending.id())))
+                .verifyComplete();
+        StepVerifier.create(orderRepo.findById(rejected.id()))
+                .expectNextMatches(order -> order.status() == OrderStatus.REJECTED)
+                .verifyComplete();
+        StepVerifier.create(orderRepo.findById(pending.id()))
+                .expectNextMatches(order -> order.status() == OrderStatus.PENDING_VALIDATION)
+                .verifyComplete();
+    }
+
+    @Test
+    @WithMockUser("kaladin")
+    void when_rows_paged_by_key_then_pages_follow_each_other() {
+        var book = new Book("1234567891", "Title", "Author", 9.90);
+        var ids = new ArrayList<Long>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(orderRepo.save(OrderService.buildAcceptedOrder(book, 1)).block().id());
+        }
+        Collections.reverse(ids);
+
+        var firstPage = orderRepo.findRowsByCreatedByBefore("kaladin", null, null, 2,
+                        (row, metadata) -> Map.entry(row.get("created_date", LocalDateTime.class),
+                                row.get("id", Long.class)))
+                .collectList()
+                .block();
+        assertThat(firstPage).extracting(Map.Entry::getValue).containsExactly(ids.get(0), ids.get(1));
+
+        var last = firstPage.get(1);
+        StepVerifier.create(orderRepo.findRowsByCreatedByBefore("kaladin", last.getKey(), last.getValue(), 2,
+                        (row, metadata) -> row.get("id", Long.class)))
+                .expectNext(ids.get(2))
+                .verifyComplete();
+    }
 }
@@ -0,0 +1,114 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.book.Book;
+import com.polarbookshop.orderservice.book.BookClient;
+import com.polarbookshop.orderservice.book.CatalogUnavailableException;
+import com.polarbookshop.orderservice.config.OrderProperties;
+import com.polarbookshop.orderservice.domain.IdempotencyKeys;
+import com.polarbookshop.orderservice.domain.Order;
+import com.polarbookshop.orderservice.domain.OrderMetrics;
+import com.polarbookshop.orderservice.domain.OrderRepository;
+import com.polarbookshop.orderservice.domain.OrderService;
+import com.polarbookshop.orderservice.domain.OrderStats;
+import com.polarbookshop.orderservice.domain.OrderStatus;
+import com.polarbookshop.orderservice.domain.RecentOrders;
+import com.polarbookshop.orderservice.order.event.OrderOutbox;
+import com.polarbookshop.orderservice.order.event.OrderUpdates;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+
+public class OrderServiceTests {
+
+    private OrderRepository orderRepo;
+    private BookClient bookClient;
+    private OrderStats orderStats;
+
+    @BeforeEach
+    void setup() {
+        orderRepo = Mockito.mock(OrderRepository.class);
+        bookClient = Mockito.mock(BookClient.class);
+        orderStats = Mockito.mock(OrderStats.class);
+        given(orderRepo.save(any())).willAnswer(invocation -> Mono.just(saved(invocation.getArgument(0))));
+    }
+
+    @Test
+    void when_catalog_unavailable_and_degraded_mode_pending_then_order_pending_validation() {
+        given(bookClient.getBookByIsbn("1234567890"))
+                .willReturn(Mono.error(new CatalogUnavailableException("1234567890", new RuntimeException())));
+
+        StepVerifier.create(orderService(OrderProperties.DegradedMode.PENDING_VALIDATION)
+                        .submitOrder("1234567890", 2))
+                .expectNextMatches(order -> order.status() == OrderStatus.PENDING_VALIDATION
+                        && order.bookPrice() == null)
+                .verifyComplete();
+    }
+
+    @Test
+    void when_catalog_unavailable_and_degraded_mode_reject_then_order_rejected() {
+        given(bookClient.getBookByIsbn("1234567890"))
+                .willReturn(Mono.error(new CatalogUnavailableException("1234567890", new RuntimeException())));
+
+        StepVerifier.create(orderService(OrderProperties.DegradedMode.REJECT).submitOrder("1234567890", 2))
+                .expectNextMatches(order -> order.status() == OrderStatus.REJECTED)
+                .verifyComplete();
+    }
+
+    @Test
+    void when_pending_order_validated_then_accepted_or_rejected() {
+        var book = new Book("1234567891", "Title", "Author", 9.90);
+        var pendingFound = pending(1L, book.isbn());
+        var pendingMissing = pending(2L, "1234567892");
+        given(orderRepo.findPendingValidation(anyInt())).willReturn(Flux.just(pendingFound, pendingMissing));
+        given(bookClient.getBookByIsbn(book.isbn())).willReturn(Mono.just(book));
+        given(bookClient.getBookByIsbn("1234567892")).willReturn(Mono.empty());
+
+        StepVerifier.create(orderService(OrderProperties.DegradedMode.PENDING_VALIDATION).validatePendingOrders())
+                .expectNextMatches(order -> order.id() == 1L && order.status() == OrderStatus.ACCEPTED
+                        && order.bookPrice().equals(book.price()))
+                .expectNextMatches(order -> order.id() == 2L && order.status() == OrderStatus.REJECTED)
+                .verifyComplete();
+
+        then(orderStats).should(times(2)).recordTransition(eq(OrderStatus.PENDING_VALIDATION), any());
+    }
+
+    private OrderService orderService(OrderProperties.DegradedMode degradedMode) {
+        var orderOutbox = Mockito.mock(OrderOutbox.class);
+        given(orderOutbox.append(any())).willReturn(Mono.empty());
+        var orderUpdates = Mockito.mock(OrderUpdates.class);
+        given(orderUpdates.notifyCluster(any())).willReturn(Mono.empty());
+        var transactionalOperator = Mockito.mock(TransactionalOperator.class);
+        given(transactionalOperator.transactional(Mockito.<Mono<Order>>any())).willAnswer(invocation -> invocation.getArgument(0));
+        return new OrderService(orderRepo, bookClient, orderOutbox, orderUpdates, Mockito.mock(RecentOrders.class),
+                orderStats, Mockito.mock(IdempotencyKeys.class), new OrderProperties(100, 1000, degradedMode, 100),
+                Optional.empty(), new OrderMetrics(new SimpleMeterRegistry()), transactionalOperator);
+    }
+
+    private static Order pending(Long id, String isbn) {
+        var created = Instant.parse("2026-01-01T10:00:00Z");
+        return new Order(id, isbn, null, null, 1, OrderStatus.PENDING_VALIDATION, created, created, 0,
+                "bjorn", "bjorn");
+    }
+
+    private static Order saved(Order order) {
+        var created = order.createdDate() != null ? order.createdDate() : Instant.parse("2026-01-01T10:00:00Z");
+        return new Order(order.id() != null ? order.id() : 1L, order.bookIsbn(), order.bookName(), order.bookPrice(),
+                order.quantity(), order.status(), created, created, order.version(), order.createdBy(),
+                order.lastModifiedBy());
+    }
+}
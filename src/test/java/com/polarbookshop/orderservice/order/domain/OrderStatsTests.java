@@ -0,0 +1,121 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.config.DataConfig;
+import com.polarbookshop.orderservice.domain.Order;
+import com.polarbookshop.orderservice.domain.OrderStats;
+import com.polarbookshop.orderservice.domain.OrderStatsReport;
+import com.polarbookshop.orderservice.domain.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionCallback;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataR2dbcTest
+@Import(DataConfig.class)
+@Testcontainers
+public class OrderStatsTests {
+
+    @Container
+    static PostgreSQLContainer<?> postgresql = new PostgreSQLContainer<>("postgres:14.4");
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private ReactiveTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void postgresqlProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.r2dbc.url", OrderStatsTests::r2dbcUrl);
+        registry.add("spring.r2dbc.username", postgresql::getUsername);
+        registry.add("spring.r2dbc.password", postgresql::getPassword);
+        registry.add("spring.flyway.url", postgresql::getJdbcUrl);
+    }
+
+    private static String r2dbcUrl() {
+        return String.format("r2dbc:postgresql://%s:%s/%s",
+                postgresql.getHost(),
+                postgresql.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT),
+                postgresql.getDatabaseName());
+    }
+
+    @Test
+    void when_flush_fails_then_deltas_kept_for_next_flush() {
+        var orderStats = new OrderStats(databaseClient, failingOnce(TransactionalOperator.create(transactionManager)));
+        var createdDate = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).atZone(ZoneId.systemDefault()).toInstant();
+
+        orderStats.recordCreated(order(1L, "1234567891", 2, 9.90, OrderStatus.ACCEPTED, createdDate));
+        orderStats.recordCreated(order(2L, "1234567892", 1, null, OrderStatus.PENDING_VALIDATION, createdDate));
+        orderStats.flush();
+
+        StepVerifier.create(orderStats.report(Duration.ofDays(1), 10))
+                .assertNext(report -> {
+                    assertThat(report.statusCounts()).isEmpty();
+                    assertThat(report.sales()).isEmpty();
+                })
+                .verifyComplete();
+
+        orderStats.recordTransition(OrderStatus.PENDING_VALIDATION,
+                order(2L, "1234567892", 1, 5.0, OrderStatus.ACCEPTED, createdDate));
+        orderStats.flush();
+
+        StepVerifier.create(orderStats.report(Duration.ofDays(1), 10))
+                .assertNext(report -> {
+                    assertThat(report.statusCounts())
+                            .containsEntry(OrderStatus.ACCEPTED, 2L)
+                            .containsEntry(OrderStatus.PENDING_VALIDATION, 0L);
+                    assertThat(report.topBooks()).containsExactly(
+                            new OrderStatsReport.BookSales("1234567891", 1, 2, 19.8),
+                            new OrderStatsReport.BookSales("1234567892", 1, 1, 5.0));
+                    assertThat(report.sales()).singleElement().satisfies(bucket -> {
+                        assertThat(bucket.bucketStart()).isEqualTo(createdDate);
+                        assertThat(bucket.orders()).isEqualTo(2);
+                        assertThat(bucket.quantity()).isEqualTo(3);
+                    });
+                })
+                .verifyComplete();
+    }
+
+    private static TransactionalOperator failingOnce(TransactionalOperator delegate) {
+        var failed = new AtomicBoolean();
+        return new TransactionalOperator() {
+            @Override
+            public <T> Mono<T> transactional(Mono<T> mono) {
+                return failed.compareAndSet(false, true)
+                        ? Mono.error(new IllegalStateException("Connection refused"))
+                        : delegate.transactional(mono);
+            }
+
+            @Override
+            public <T> Flux<T> execute(TransactionCallback<T> action) {
+                return delegate.execute(action);
+            }
+        };
+    }
+
+    private static Order order(Long id, String isbn, int quantity, Double price, OrderStatus status,
+                               Instant createdDate) {
+        return new Order(id, isbn, null, price, quantity, status, createdDate, createdDate, 1, "bjorn", "bjorn");
+    }
+}
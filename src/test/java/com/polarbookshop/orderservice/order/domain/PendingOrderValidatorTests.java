@@ -0,0 +1,70 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.book.BookClient;
+import com.polarbookshop.orderservice.book.CatalogUnavailableException;
+import com.polarbookshop.orderservice.config.OrderProperties;
+import com.polarbookshop.orderservice.domain.Order;
+import com.polarbookshop.orderservice.domain.OrderStatus;
+import com.polarbookshop.orderservice.domain.OrderService;
+import com.polarbookshop.orderservice.domain.PendingOrderValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+public class PendingOrderValidatorTests {
+
+    private OrderService orderService;
+    private BookClient bookClient;
+    private PendingOrderValidator validator;
+
+    @BeforeEach
+    void setup() {
+        orderService = Mockito.mock(OrderService.class);
+        bookClient = Mockito.mock(BookClient.class);
+        validator = new PendingOrderValidator(orderService, bookClient,
+                new OrderProperties(100, 1000, OrderProperties.DegradedMode.PENDING_VALIDATION, 2));
+    }
+
+    @Test
+    void when_catalog_unavailable_then_pending_orders_left_alone() {
+        given(bookClient.isCatalogAvailable()).willReturn(false);
+
+        validator.validatePendingOrders();
+
+        then(orderService).should(never()).validatePendingOrders();
+    }
+
+    @Test
+    void when_batch_full_then_next_batch_validated() {
+        given(bookClient.isCatalogAvailable()).willReturn(true);
+        given(orderService.validatePendingOrders())
+                .willReturn(Flux.just(validated(1L), validated(2L)))
+                .willReturn(Flux.just(validated(3L)));
+
+        validator.validatePendingOrders();
+
+        then(orderService).should(times(2)).validatePendingOrders();
+    }
+
+    @Test
+    void when_catalog_fails_during_validation_then_retried_on_next_poll() {
+        given(bookClient.isCatalogAvailable()).willReturn(true);
+        given(orderService.validatePendingOrders())
+                .willReturn(Flux.error(new CatalogUnavailableException("1234567890", new RuntimeException())));
+
+        validator.validatePendingOrders();
+
+        then(orderService).should(times(1)).validatePendingOrders();
+    }
+
+    private static Order validated(Long id) {
+        return new Order(id, "1234567890", "Title - Author", 9.90, 1, OrderStatus.ACCEPTED, null, null, 1,
+                "bjorn", "bjorn");
+    }
+}
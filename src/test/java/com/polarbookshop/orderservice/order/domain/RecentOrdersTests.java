@@ -0,0 +1,77 @@
+package com.polarbookshop.orderservice.order.domain;
+
+import com.polarbookshop.orderservice.config.RecentOrdersProperties;
+import com.polarbookshop.orderservice.domain.Order;
+import com.polarbookshop.orderservice.domain.OrderRepository;
+import com.polarbookshop.orderservice.domain.OrderStatus;
+import com.polarbookshop.orderservice.domain.RecentOrders;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+
+public class RecentOrdersTests {
+
+    private OrderRepository orderRepo;
+    private RecentOrders recentOrders;
+
+    @BeforeEach
+    void setup() {
+        this.orderRepo = Mockito.mock(OrderRepository.class);
+        this.recentOrders = new RecentOrders(orderRepo,
+                new RecentOrdersProperties(true, 100, DataSize.ofMegabytes(1), Duration.ofMinutes(10)),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void when_first_page_read_twice_then_loaded_once() {
+        given(orderRepo.findFirstPageByCreatedBy("bjorn", 101))
+                .willReturn(Flux.just(order(1L, OrderStatus.ACCEPTED, 1)));
+
+        StepVerifier.create(recentOrders.firstPage("bjorn", 10).orElseThrow()).expectNextCount(1).verifyComplete();
+        StepVerifier.create(recentOrders.firstPage("bjorn", 10).orElseThrow()).expectNextCount(1).verifyComplete();
+
+        then(orderRepo).should(times(1)).findFirstPageByCreatedBy("bjorn", 101);
+    }
+
+    @Test
+    void when_orders_submitted_and_dispatched_then_cached_list_patched() {
+        given(orderRepo.findFirstPageByCreatedBy("bjorn", 101))
+                .willReturn(Flux.just(order(1L, OrderStatus.ACCEPTED, 1)));
+        StepVerifier.create(recentOrders.firstPage("bjorn", 10).orElseThrow()).expectNextCount(1).verifyComplete();
+
+        recentOrders.apply(List.of(order(2L, OrderStatus.ACCEPTED, 1)));
+        recentOrders.apply(List.of(order(1L, OrderStatus.DISPATCHED, 2)));
+
+        StepVerifier.create(recentOrders.firstPage("bjorn", 10).orElseThrow())
+                .assertNext(order -> assertThat(order.id()).isEqualTo(2L))
+                .assertNext(order -> assertThat(order.status()).isEqualTo(OrderStatus.DISPATCHED))
+                .verifyComplete();
+        StepVerifier.create(recentOrders.listVersion("bjorn").orElseThrow())
+                .assertNext(version -> assertThat(version.count()).isEqualTo(2))
+                .verifyComplete();
+    }
+
+    @Test
+    void when_user_not_cached_then_list_version_not_served() {
+        assertThat(recentOrders.listVersion("bjorn")).isEmpty();
+    }
+
+    private static Order order(Long id, OrderStatus status, int version) {
+        var createdDate = Instant.parse("2023-05-01T10:15:30Z").plusSeconds(id);
+        return new Order(id, "1234567890", "Title - Author", 9.90, 1, status,
+                createdDate, createdDate.plusSeconds(version), version, "bjorn", "bjorn");
+    }
+}
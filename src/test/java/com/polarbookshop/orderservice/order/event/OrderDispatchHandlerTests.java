@@ -0,0 +1,183 @@
+package com.polarbookshop.orderservice.order.event;
+
+import com.polarbookshop.orderservice.config.DispatchProperties;
+import com.polarbookshop.orderservice.domain.Order;
+import com.polarbookshop.orderservice.domain.OrderService;
+import com.polarbookshop.orderservice.domain.OrderStatus;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+public class OrderDispatchHandlerTests {
+
+    private OrderService orderService;
+    private StreamBridge streamBridge;
+    private SimpleMeterRegistry meterRegistry;
+    private OrderDispatchHandler handler;
+
+    @BeforeEach
+    void setup() {
+        orderService = Mockito.mock(OrderService.class);
+        streamBridge = Mockito.mock(StreamBridge.class);
+        meterRegistry = new SimpleMeterRegistry();
+        handler = new OrderDispatchHandler(orderService, streamBridge,
+                new DispatchProperties(100, Duration.ofMillis(50), 4, 200, 3, Duration.ofSeconds(1)),
+                meterRegistry);
+    }
+
+    @Test
+    void when_batch_fails_then_messages_retried_one_by_one() {
+        var healthy = message(1L, null);
+        var poisoned = message(2L, null);
+        given(orderService.consumerOrderDispatchedEvent(List.of(healthy.getPayload(), poisoned.getPayload())))
+                .willReturn(Flux.error(new IllegalStateException("boom")));
+        given(orderService.consumerOrderDispatchedEvent(List.of(healthy.getPayload())))
+                .willReturn(Flux.just(dispatched(1L)));
+        given(orderService.consumerOrderDispatchedEvent(List.of(poisoned.getPayload())))
+                .willReturn(Flux.error(new IllegalStateException("boom")));
+
+        StepVerifier.create(handler.handle(List.of(healthy, poisoned))).verifyComplete();
+
+        then(orderService).should().consumerOrderDispatchedEvent(List.of(healthy.getPayload()));
+        then(streamBridge).should(never()).send(any(), any());
+        assertThat(meterRegistry.counter("orders.dispatch.failures", "outcome", "retried").count()).isEqualTo(1);
+    }
+
+    @Test
+    void when_attempts_exhausted_then_message_parked() {
+        var poisoned = message(2L, List.of(Map.of("reason", "rejected", "count", 2L)));
+        given(orderService.consumerOrderDispatchedEvent(List.of(poisoned.getPayload())))
+                .willReturn(Flux.error(new IllegalStateException("boom")));
+        given(streamBridge.send(eq("parkDispatchedOrder-out-0"), any())).willAnswer(invocation -> {
+            confirm(invocation.getArgument(1), null);
+            return true;
+        });
+
+        StepVerifier.create(handler.handle(List.of(poisoned))).verifyComplete();
+
+        then(streamBridge).should().send(eq("parkDispatchedOrder-out-0"), any());
+        assertThat(meterRegistry.counter("orders.dispatch.failures", "outcome", "parked").count()).isEqualTo(1);
+    }
+
+    @Test
+    void when_parked_message_unroutable_then_original_retried() throws IOException {
+        var channel = Mockito.mock(Channel.class);
+        var poisoned = MessageBuilder.fromMessage(message(2L, channel, 12L))
+                .setHeader("x-death", List.of(Map.of("reason", "rejected", "count", 2L)))
+                .build();
+        given(orderService.consumerOrderDispatchedEvent(List.of(poisoned.getPayload())))
+                .willReturn(Flux.error(new IllegalStateException("boom")));
+        var returned = new ReturnedMessage(new org.springframework.amqp.core.Message(new byte[0]),
+                312, "NO_ROUTE", "order-dispatched.parked", "#");
+        given(streamBridge.send(eq("parkDispatchedOrder-out-0"), any())).willAnswer(invocation -> {
+            confirm(invocation.getArgument(1), returned);
+            return true;
+        });
+
+        StepVerifier.create(handler.handle(List.of(poisoned))).verifyComplete();
+
+        then(channel).should().basicNack(12L, false, false);
+        then(channel).should(never()).basicAck(anyLong(), anyBoolean());
+        assertThat(meterRegistry.counter("orders.dispatch.failures", "outcome", "parked").count()).isZero();
+    }
+
+    @Test
+    void when_parked_message_not_confirmed_then_original_retried() throws IOException {
+        var channel = Mockito.mock(Channel.class);
+        var poisoned = MessageBuilder.fromMessage(message(2L, channel, 12L))
+                .setHeader("x-death", List.of(Map.of("reason", "rejected", "count", 2L)))
+                .build();
+        given(orderService.consumerOrderDispatchedEvent(List.of(poisoned.getPayload())))
+                .willReturn(Flux.error(new IllegalStateException("boom")));
+        given(streamBridge.send(eq("parkDispatchedOrder-out-0"), any())).willReturn(true);
+
+        StepVerifier.create(handler.handle(List.of(poisoned))).verifyComplete();
+
+        then(channel).should().basicNack(12L, false, false);
+        assertThat(meterRegistry.counter("orders.dispatch.failures", "outcome", "parked").count()).isZero();
+    }
+
+    @Test
+    void when_batch_dispatched_then_messages_acked() throws IOException {
+        var channel = Mockito.mock(Channel.class);
+        var first = message(1L, channel, 11L);
+        var second = message(2L, channel, 12L);
+        given(orderService.consumerOrderDispatchedEvent(List.of(first.getPayload(), second.getPayload())))
+                .willReturn(Flux.just(dispatched(1L), dispatched(2L)));
+
+        StepVerifier.create(handler.handle(List.of(first, second))).verifyComplete();
+
+        then(channel).should().basicAck(11L, false);
+        then(channel).should().basicAck(12L, false);
+        then(channel).should(never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    void when_message_fails_then_nacked_without_requeue() throws IOException {
+        var channel = Mockito.mock(Channel.class);
+        var poisoned = message(2L, channel, 12L);
+        given(orderService.consumerOrderDispatchedEvent(List.of(poisoned.getPayload())))
+                .willReturn(Flux.error(new IllegalStateException("boom")));
+
+        StepVerifier.create(handler.handle(List.of(poisoned))).verifyComplete();
+
+        then(channel).should().basicNack(12L, false, false);
+        then(channel).should(never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void when_no_death_history_then_first_attempt() {
+        assertThat(OrderDispatchHandler.attempts(message(1L, null))).isEqualTo(1);
+        assertThat(OrderDispatchHandler.attempts(message(1L, List.of(
+                Map.of("reason", "rejected", "count", 2L),
+                Map.of("reason", "expired", "count", 2L))))).isEqualTo(3);
+    }
+
+    private static Message<OrderDispatchedMessage> message(Long orderId, List<Map<String, Object>> deaths) {
+        return MessageBuilder.withPayload(new OrderDispatchedMessage(orderId))
+                .setHeader("x-death", deaths)
+                .build();
+    }
+
+    private static Message<OrderDispatchedMessage> message(Long orderId, Channel channel, long deliveryTag) {
+        return MessageBuilder.withPayload(new OrderDispatchedMessage(orderId))
+                .setHeader(AmqpHeaders.CHANNEL, channel)
+                .setHeader(AmqpHeaders.DELIVERY_TAG, deliveryTag)
+                .build();
+    }
+
+    private static void confirm(Message<?> parked, ReturnedMessage returned) {
+        var correlation = parked.getHeaders().get(AmqpHeaders.PUBLISH_CONFIRM_CORRELATION, CorrelationData.class);
+        correlation.setReturned(returned);
+        correlation.getFuture().set(new CorrelationData.Confirm(true, null));
+    }
+
+    private static Order dispatched(Long id) {
+        return new Order(id, "1234567890", "Title - Author", 9.90, 1, OrderStatus.DISPATCHED,
+                null, null, 2, "bjorn", "bjorn");
+    }
+}
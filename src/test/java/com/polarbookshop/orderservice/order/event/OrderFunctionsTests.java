@@ -0,0 +1,109 @@
+package com.polarbookshop.orderservice.order.event;
+
+import com.polarbookshop.orderservice.config.DispatchProperties;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+
+public class OrderFunctionsTests {
+
+    @Test
+    void when_same_order_then_same_lane() {
+        assertThat(OrderFunctions.lane(42L, 4)).isEqualTo(OrderFunctions.lane(42L, 4));
+        assertThat(OrderFunctions.lane(null, 4)).isZero();
+    }
+
+    @Test
+    void when_consuming_one_partition_then_all_lanes_used() {
+        var lanes = LongStream.rangeClosed(1, 1000)
+                .filter(orderId -> Math.abs(Long.hashCode(orderId)) % 2 == 0)
+                .mapToInt(orderId -> OrderFunctions.lane(orderId, 4))
+                .distinct()
+                .sorted()
+                .toArray();
+        assertThat(lanes).containsExactly(0, 1, 2, 3);
+    }
+
+    @Test
+    void when_lane_busy_then_its_messages_wait_in_order_while_other_lanes_run() {
+        var handler = Mockito.mock(OrderDispatchHandler.class);
+        var handled = new CopyOnWriteArrayList<String>();
+        var slowBatch = Sinks.<Void>empty();
+        given(handler.handle(any())).willAnswer(invocation -> {
+            List<Message<OrderDispatchedMessage>> batch = invocation.getArgument(0);
+            var name = (String) batch.get(0).getHeaders().get("name");
+            handled.add(name);
+            return name.equals("first") ? slowBatch.asMono() : Mono.empty();
+        });
+        var messages = Sinks.many().unicast().<Message<OrderDispatchedMessage>>onBackpressureBuffer();
+        new OrderFunctions().dispatchOrder(handler, new DispatchProperties(1, Duration.ofSeconds(1), 2, 2, 5,
+                        Duration.ofSeconds(5)))
+                .accept(messages.asFlux());
+
+        messages.tryEmitNext(message(orderInLane(0), "first"));
+        messages.tryEmitNext(message(orderInLane(0), "second"));
+        messages.tryEmitNext(message(orderInLane(1), "other"));
+
+        assertThat(handled).containsExactly("first", "other");
+        slowBatch.tryEmitEmpty();
+        assertThat(handled).containsExactly("first", "other", "second");
+    }
+
+    @Test
+    void when_windows_close_behind_a_stuck_batch_then_other_lanes_keep_running() {
+        var scheduler = VirtualTimeScheduler.getOrSet();
+        try {
+            var handler = Mockito.mock(OrderDispatchHandler.class);
+            var handled = new CopyOnWriteArrayList<String>();
+            given(handler.handle(any())).willAnswer(invocation -> {
+                List<Message<OrderDispatchedMessage>> batch = invocation.getArgument(0);
+                var name = (String) batch.get(0).getHeaders().get("name");
+                handled.add(name);
+                return name.startsWith("stuck") ? Mono.never() : Mono.empty();
+            });
+            var messages = Sinks.many().multicast().<Message<OrderDispatchedMessage>>onBackpressureBuffer();
+            new OrderFunctions().dispatchOrder(handler, new DispatchProperties(10, Duration.ofMillis(10), 2, 200, 5,
+                            Duration.ofSeconds(5)))
+                    .accept(messages.asFlux());
+
+            // More closed windows than concatMap queues, all waiting behind the first batch that never completes.
+            for (int i = 0; i < 100; i++) {
+                messages.tryEmitNext(message(orderInLane(0), "stuck-" + i));
+                scheduler.advanceTimeBy(Duration.ofMillis(10));
+            }
+            messages.tryEmitNext(message(orderInLane(1), "other"));
+            scheduler.advanceTimeBy(Duration.ofMillis(10));
+
+            assertThat(handled).containsExactly("stuck-0", "other");
+            assertThat(messages.currentSubscriberCount()).isOne();
+        } finally {
+            VirtualTimeScheduler.reset();
+        }
+    }
+
+    private static long orderInLane(int lane) {
+        return LongStream.rangeClosed(1, 1000)
+                .filter(orderId -> OrderFunctions.lane(orderId, 2) == lane)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static Message<OrderDispatchedMessage> message(long orderId, String name) {
+        return MessageBuilder.withPayload(new OrderDispatchedMessage(orderId))
+                .setHeader("name", name)
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.polarbookshop.orderservice.order.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polarbookshop.orderservice.config.OrderUpdatesProperties;
+import com.polarbookshop.orderservice.domain.Order;
+import com.polarbookshop.orderservice.domain.OrderStatus;
+import com.polarbookshop.orderservice.domain.RecentOrders;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OrderUpdatesTests {
+
+    private final OrderUpdates orderUpdates = new OrderUpdates(null, new ObjectMapper(),
+            Mockito.mock(RecentOrders.class), new OrderUpdatesProperties(false, Duration.ofSeconds(10),
+            Duration.ofSeconds(1)));
+
+    @Test
+    void when_previous_subscriber_gone_then_new_subscriber_receives_updates() {
+        orderUpdates.updatesFor("bjorn").subscribe().dispose();
+        var received = new CopyOnWriteArrayList<Order>();
+        var subscription = orderUpdates.updatesFor("bjorn").subscribe(received::add);
+
+        orderUpdates.publish(List.of(order(1L, "bjorn"), order(2L, "isabelle")));
+        subscription.dispose();
+
+        assertThat(received).extracting(Order::id).containsExactly(1L);
+    }
+
+    @Test
+    void when_subscriber_joins_while_another_leaves_then_it_still_receives_updates() {
+        for (long i = 0; i < 2000; i++) {
+            var leaving = orderUpdates.updatesFor("bjorn").subscribe();
+            var received = new CopyOnWriteArrayList<Order>();
+            var joining = CompletableFuture.supplyAsync(
+                    () -> orderUpdates.updatesFor("bjorn").subscribe(received::add));
+            CompletableFuture.runAsync(leaving::dispose).join();
+            var subscription = joining.join();
+
+            orderUpdates.publish(List.of(order(i, "bjorn")));
+            subscription.dispose();
+
+            assertThat(received).extracting(Order::id).containsExactly(i);
+        }
+    }
+
+    private static Order order(Long id, String createdBy) {
+        return new Order(id, "1234567890", "Title - Author", 9.90, 1, OrderStatus.ACCEPTED, null, null, 0,
+                createdBy, createdBy);
+    }
+}
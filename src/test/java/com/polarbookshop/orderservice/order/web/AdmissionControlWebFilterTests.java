@@ -0,0 +1,103 @@
+package com.polarbookshop.orderservice.order.web;
+
+import com.polarbookshop.orderservice.config.AdmissionProperties;
+import com.polarbookshop.orderservice.web.AdmissionControlWebFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdmissionControlWebFilterTests {
+
+    private static final WebFilterChain COMPLETING_CHAIN = exchange -> Mono.empty();
+    private static final WebFilterChain SLOW_CHAIN = exchange -> Mono.delay(Duration.ofMillis(50)).then();
+
+    @Test
+    void when_user_exceeds_burst_then_too_many_requests() {
+        var filter = filter(10, 2);
+
+        StepVerifier.create(filter.filter(exchange("bjorn"), COMPLETING_CHAIN)).verifyComplete();
+        StepVerifier.create(filter.filter(exchange("bjorn"), COMPLETING_CHAIN)).verifyComplete();
+        var rejected = exchange("bjorn");
+        StepVerifier.create(filter.filter(rejected, COMPLETING_CHAIN)).verifyComplete();
+
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        var otherUser = exchange("isabelle");
+        StepVerifier.create(filter.filter(otherUser, COMPLETING_CHAIN)).verifyComplete();
+        assertThat(otherUser.getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void when_concurrency_limit_reached_then_service_unavailable() {
+        var filter = filter(1, 100);
+        WebFilterChain hangingChain = exchange -> Mono.never();
+
+        var inFlight = filter.filter(exchange("bjorn"), hangingChain).subscribe();
+        var rejected = exchange("isabelle");
+        StepVerifier.create(filter.filter(rejected, COMPLETING_CHAIN)).verifyComplete();
+        inFlight.dispose();
+
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        var admitted = exchange("isabelle");
+        StepVerifier.create(filter.filter(admitted, COMPLETING_CHAIN)).verifyComplete();
+        assertThat(admitted.getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void when_slow_request_then_limit_backs_off() {
+        var meterRegistry = new SimpleMeterRegistry();
+        var filter = slowFilter(meterRegistry);
+
+        StepVerifier.create(filter.filter(exchange("bjorn"), SLOW_CHAIN)).verifyComplete();
+
+        assertThat(meterRegistry.get("orders.admission.limit").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void when_slow_streamed_response_then_limit_unchanged() {
+        var meterRegistry = new SimpleMeterRegistry();
+        var filter = slowFilter(meterRegistry);
+        var streamed = MockServerWebExchange.from(MockServerHttpRequest.get("/orders")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .mutate()
+                .principal(Mono.just(new TestingAuthenticationToken("bjorn", null)))
+                .build();
+
+        StepVerifier.create(filter.filter(streamed, SLOW_CHAIN)).verifyComplete();
+
+        assertThat(meterRegistry.get("orders.admission.limit").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("orders.admission.in.flight").gauge().value()).isZero();
+    }
+
+    private static AdmissionControlWebFilter filter(int limit, int burst) {
+        return new AdmissionControlWebFilter(new AdmissionProperties(true, limit, 1, limit, Duration.ofSeconds(1),
+                0.9, 1, burst, Duration.ofMinutes(10)), new SimpleMeterRegistry());
+    }
+
+    private static AdmissionControlWebFilter slowFilter(MeterRegistry meterRegistry) {
+        return new AdmissionControlWebFilter(new AdmissionProperties(true, 2, 1, 2, Duration.ofMillis(1),
+                0.5, 10, 10, Duration.ofMinutes(10)), meterRegistry);
+    }
+
+    private static ServerWebExchange exchange(String userId) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/orders"))
+                .mutate()
+                .principal(Mono.just(new TestingAuthenticationToken(userId, null)))
+                .build();
+    }
+}
@@ -1,27 +1,65 @@
 package com.polarbookshop.orderservice.order.web;
 
+import com.polarbookshop.orderservice.config.AdmissionProperties;
+import com.polarbookshop.orderservice.config.OrderProperties;
+import com.polarbookshop.orderservice.config.OrderUpdatesProperties;
 import com.polarbookshop.orderservice.config.SecurityConfig;
+import com.polarbookshop.orderservice.book.Book;
 import com.polarbookshop.orderservice.domain.Order;
+import com.polarbookshop.orderservice.domain.IdempotencyKeyMismatchException;
+import com.polarbookshop.orderservice.domain.OrderCursor;
+import com.polarbookshop.orderservice.domain.OrderEvent;
+import com.polarbookshop.orderservice.domain.OrderIdempotency;
+import com.polarbookshop.orderservice.domain.OrderIntake;
+import com.polarbookshop.orderservice.domain.OrderLine;
+import com.polarbookshop.orderservice.domain.OrderListVersion;
 import com.polarbookshop.orderservice.domain.OrderService;
 import com.polarbookshop.orderservice.domain.OrderStatus;
+import com.polarbookshop.orderservice.order.event.OrderUpdates;
+import com.polarbookshop.orderservice.web.OrderBatchRequest;
 import com.polarbookshop.orderservice.web.OrderController;
+import com.polarbookshop.orderservice.web.OrderReceipt;
 import com.polarbookshop.orderservice.web.OrderRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
 
 @WebFluxTest(OrderController.class)
 @Import(SecurityConfig.class)
+@EnableConfigurationProperties({AdmissionProperties.class, OrderProperties.class, OrderUpdatesProperties.class})
 public class OrderControllerWebFluxTests {
 
     @Autowired
@@ -30,9 +68,26 @@ public class OrderControllerWebFluxTests {
     @MockBean
     private OrderService orderService;
 
+    @MockBean
+    private OrderIntake orderIntake;
+
+    @MockBean
+    private OrderUpdates orderUpdates;
+
+    @MockBean
+    private OrderIdempotency orderIdempotency;
+
     @MockBean
     ReactiveJwtDecoder reactiveJwtDecoder;
 
+    @TestConfiguration
+    static class MetricsTestConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
     @Test
     void when_book_not_available_reject_order() {
         var orderRequest = new OrderRequest("1234567890", 3);
@@ -56,4 +111,209 @@ public class OrderControllerWebFluxTests {
                     assertThat(actualOrder.status()).isEqualTo(OrderStatus.REJECTED);
                 });
     }
+
+    @Test
+    void when_batch_submitted_then_return_result_per_line() {
+        var book = new Book("1234567891", "Title", "Author", 9.90);
+        var batchRequest = new OrderBatchRequest(List.of(
+                new OrderRequest(book.isbn(), 2),
+                new OrderRequest("1234567890", 1)));
+        given(orderService.submitOrders(List.of(
+                new OrderLine(book.isbn(), 2),
+                new OrderLine("1234567890", 1)
+        ))).willReturn(Flux.just(
+                OrderService.buildAcceptedOrder(book, 2),
+                OrderService.buildRejectedOrder("1234567890", 1)));
+
+        webClient
+                .mutateWith(SecurityMockServerConfigurers
+                        .mockJwt()
+                        .authorities(new SimpleGrantedAuthority("ROLE_customer")))
+                .post()
+                .uri("/orders/batch")
+                .bodyValue(batchRequest)
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectBodyList(Order.class).value(orders -> {
+                    assertThat(orders).hasSize(2);
+                    assertThat(orders.get(0).status()).isEqualTo(OrderStatus.ACCEPTED);
+                    assertThat(orders.get(1).status()).isEqualTo(OrderStatus.REJECTED);
+                });
+    }
+
+    @Test
+    void when_batch_empty_then_bad_request() {
+        webClient
+                .mutateWith(SecurityMockServerConfigurers
+                        .mockJwt()
+                        .authorities(new SimpleGrantedAuthority("ROLE_customer")))
+                .post()
+                .uri("/orders/batch")
+                .bodyValue(new OrderBatchRequest(List.of()))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void when_page_is_full_then_link_to_next_page() {
+        var lastOrder = new Order(42L, "1234567890", "Title - Author", 9.90, 1, OrderStatus.ACCEPTED,
+                Instant.parse("2023-05-01T10:15:30Z"), Instant.parse("2023-05-01T10:15:30Z"), 1, "bjorn", "bjorn");
+        given(orderService.getOrderListVersion("bjorn"))
+                .willReturn(Mono.just(new OrderListVersion("bjorn", 1, lastOrder.lastModifiedDate())));
+        given(orderService.getOrders(eq("bjorn"), isNull(), eq(1))).willReturn(Flux.just(lastOrder));
+
+        webClient
+                .mutateWith(SecurityMockServerConfigurers
+                        .mockJwt()
+                        .jwt(jwt -> jwt.subject("bjorn"))
+                        .authorities(new SimpleGrantedAuthority("ROLE_customer")))
+                .get()
+                .uri("/orders?limit=1")
+                .exchange()
+                .expectStatus().is2xxSuccessful()
+                .expectHeader().valueEquals(HttpHeaders.LINK,
+                        "</orders?after=" + OrderCursor.of(lastOrder).encode() + "&limit=1>; rel=\"next\"")
+                .expectBodyList(Order.class).hasSize(1);
+    }
+
+    @Test
+    void when_async_preferred_then_accepted_with_reference() {
+        var reference = UUID.randomUUID();
+        given(orderIntake.enqueue(new OrderLine("1234567890", 3), "bjorn")).willReturn(Optional.of(reference));
+
+        webClient
+                .mutateWith(SecurityMockServerConfigurers
+                        .mockJwt()
+                        .jwt(jwt -> jwt.subject("bjorn"))
+                        .authorities(new SimpleGrantedAuthority("ROLE_customer")))
+                .post()
+                .uri("/orders")
+                .header("Prefer", "respond-async")
+                .bodyValue(new OrderRequest("1234567890", 3))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectHeader().location("/orders/" + reference)
+                .expectBody(OrderReceipt.class).isEqualTo(new OrderReceipt(reference));
+    }
+
+    @Test
+    void when_intake_full_then_service_unavailable() {
+        given(orderIntake.enqueue(new OrderLine("1234567890", 3), "bjorn")).willReturn(Optional.empty());
+
+        webClient
+                .mutateWith(SecurityMockServerConfigurers
+                        .mockJwt()
+                        .jwt(jwt -> jwt.subject("bjorn"))
+                        .authorities(new SimpleGrantedAuthority("ROLE_customer")))
+                .post()
+                .uri("/orders")
+                .header("Prefer", "respond-async")
+                .bodyValue(new OrderRequest("1234567890", 3))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1");
+    }
+
+    @Test
+    void when_order_dispatched_then_pushed_to_stream() {
+        var dispatchedOrder = new Order(42L, "1234567890", "Title - Author", 9.90, 1, OrderStatus.DISPATCHED,
+                Instant.parse("2023-05-01T10:15:30Z"), Instant.parse("2023-05-01T10:20:30Z"), 2, "bjorn", "bjorn");
+        given(orderUpdates.updatesFor("bjorn")).willReturn(Flux.just(dispatchedOrder).concatWith(Flux.never()));
+
+        var events = webClient
+                .mutateWith(SecurityMockServerConfigurers
+                        .mockJwt()
+                        .jwt(jwt -> jwt.subject("bjorn"))
+                        .authorities(new SimpleGrantedAuthority("ROLE_customer")))
+                .get()
+                .uri("/orders/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<Order>>() {})
+                .getResponseBody();
+
+        StepVerifier.create(events)
+                .assertNext(event -> {
+                    assertThat(event.event()).isEqualTo("DISPATCHED");
+                    assertThat(event.data()).isNotNull();
+                    assertThat(event.data().id()).isEqualTo(42L);
+                })
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void when_order_history_requested_then_events_in_order() {
+        var events = List.of(
+                new OrderEvent(42L, OrderStatus.ACCEPTED, Instant.parse("2023-05-01T10:15:30Z")),
+                new OrderEvent(42L, OrderStatus.DISPATCHED, Instant.parse("2023-05-01T10:20:30Z")));
+        given(orderService.getOrderEvents("bjorn", 42L)).willReturn(Flux.fromIterable(events));
+
+        webClient
+                .mutateWith(SecurityMockServerConfigurers
+                        .mockJwt()
+                        .jwt(jwt -> jwt.subject("bjorn"))
+                        .authorities(new SimpleGrantedAuthority("ROLE_customer")))
+                .get()
+                .uri("/orders/42/history")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(OrderEvent.class).isEqualTo(events);
+    }
+
+    @Test
+    void when_order_history_of_unknown_order_then_not_found() {
+        given(orderService.getOrderEvents("bjorn", 42L)).willReturn(Flux.empty());
+
+        webClient
+                .mutateWith(SecurityMockServerConfigurers
+                        .mockJwt()
+                        .jwt(jwt -> jwt.subject("bjorn"))
+                        .authorities(new SimpleGrantedAuthority("ROLE_customer")))
+                .get()
+                .uri("/orders/42/history")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void when_order_list_unchanged_then_not_modified() {
+        var version = new OrderListVersion("bjorn", 3, Instant.parse("2023-05-01T10:15:30Z"));
+        given(orderService.getOrderListVersion("bjorn")).willReturn(Mono.just(version));
+
+        webClient
+                .mutateWith(SecurityMockServerConfigurers
+                        .mockJwt()
+                        .jwt(jwt -> jwt.subject("bjorn"))
+                        .authorities(new SimpleGrantedAuthority("ROLE_customer")))
+                .get()
+                .uri("/orders")
+                .header(HttpHeaders.IF_NONE_MATCH, version.etag(null, 100))
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, version.etag(null, 100));
+
+        then(orderService).should(never()).getOrders(any(), any(), anyInt());
+    }
+
+    @Test
+    void when_idempotency_key_reused_for_other_request_then_unprocessable() {
+        given(orderIdempotency.submitOrder("bjorn", "key-1", "1234567890", 3))
+                .willReturn(Mono.error(new IdempotencyKeyMismatchException("key-1")));
+
+        webClient
+                .mutateWith(SecurityMockServerConfigurers
+                        .mockJwt()
+                        .jwt(jwt -> jwt.subject("bjorn"))
+                        .authorities(new SimpleGrantedAuthority("ROLE_customer")))
+                .post()
+                .uri("/orders")
+                .header("Idempotency-Key", "key-1")
+                .bodyValue(new OrderRequest("1234567890", 3))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+
+        then(orderService).should(never()).submitOrder(any(), anyInt());
+    }
 }
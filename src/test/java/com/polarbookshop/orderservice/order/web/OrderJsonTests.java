@@ -2,15 +2,23 @@ package com.polarbookshop.orderservice.order.web;
 
 import com.polarbookshop.orderservice.domain.Order;
 import com.polarbookshop.orderservice.domain.OrderStatus;
+import com.polarbookshop.orderservice.web.OrderJsonWriter;
+import io.r2dbc.spi.Row;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.json.JsonTest;
 import org.springframework.boot.test.json.JacksonTester;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
 
 @JsonTest
 public class OrderJsonTests {
@@ -45,4 +53,28 @@ public class OrderJsonTests {
         assertThat(jsonContent).extractingJsonPathStringValue("@.lastModifiedBy")
                 .isEqualTo(order.lastModifiedBy());
     }
+
+    @Test
+    void when_row_written_directly_then_same_json_as_entity() throws IOException {
+        var order = new Order(317L, "1234567890", "Quoted \"name\"\t", null, 1, OrderStatus.ACCEPTED,
+                Instant.now(), Instant.now(), 21, "bjorn", null);
+        var row = Mockito.mock(Row.class);
+        given(row.get("id", Long.class)).willReturn(order.id());
+        given(row.get("book_isbn", String.class)).willReturn(order.bookIsbn());
+        given(row.get("book_name", String.class)).willReturn(order.bookName());
+        given(row.get("book_price", Double.class)).willReturn(order.bookPrice());
+        given(row.get("quantity", Integer.class)).willReturn(order.quantity());
+        given(row.get("status", String.class)).willReturn(order.status().name());
+        given(row.get("created_date", LocalDateTime.class))
+                .willReturn(LocalDateTime.ofInstant(order.createdDate(), ZoneId.systemDefault()));
+        given(row.get("last_modified_date", LocalDateTime.class))
+                .willReturn(LocalDateTime.ofInstant(order.lastModifiedDate(), ZoneId.systemDefault()));
+        given(row.get("version", Integer.class)).willReturn(order.version());
+        given(row.get("created_by", String.class)).willReturn(order.createdBy());
+        given(row.get("last_modified_by", String.class)).willReturn(order.lastModifiedBy());
+
+        var buffer = OrderJsonWriter.writeLine(row, DefaultDataBufferFactory.sharedInstance);
+
+        assertThat(buffer.toString(StandardCharsets.UTF_8)).isEqualTo(json.write(order).getJson() + "\n");
+    }
 }
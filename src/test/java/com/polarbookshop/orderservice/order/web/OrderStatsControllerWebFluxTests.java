@@ -0,0 +1,108 @@
+package com.polarbookshop.orderservice.order.web;
+
+import com.polarbookshop.orderservice.config.AdmissionProperties;
+import com.polarbookshop.orderservice.config.StatsProperties;
+import com.polarbookshop.orderservice.config.SecurityConfig;
+import com.polarbookshop.orderservice.domain.OrderStats;
+import com.polarbookshop.orderservice.domain.OrderStatsReport;
+import com.polarbookshop.orderservice.domain.OrderStatus;
+import com.polarbookshop.orderservice.web.OrderStatsController;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+@WebFluxTest(OrderStatsController.class)
+@Import(SecurityConfig.class)
+@EnableConfigurationProperties({AdmissionProperties.class, StatsProperties.class})
+public class OrderStatsControllerWebFluxTests {
+
+    @Autowired
+    private WebTestClient webClient;
+
+    @MockBean
+    private OrderStats orderStats;
+
+    @MockBean
+    ReactiveJwtDecoder reactiveJwtDecoder;
+
+    @TestConfiguration
+    static class MetricsTestConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Test
+    void when_window_and_top_too_large_then_clamped() {
+        var report = new OrderStatsReport(Instant.now(), Map.of(OrderStatus.ACCEPTED, 3L),
+                List.of(new OrderStatsReport.BookSales("1234567891", 3, 5, 49.5)), List.of());
+        given(orderStats.report(Duration.ofDays(90), 100)).willReturn(Mono.just(report));
+
+        webClient
+                .mutateWith(SecurityMockServerConfigurers
+                        .mockJwt()
+                        .authorities(new SimpleGrantedAuthority("ROLE_employee")))
+                .get()
+                .uri("/orders/stats?window=365d&top=1000")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(OrderStatsReport.class).value(actual -> {
+                    assertThat(actual.statusCounts()).containsEntry(OrderStatus.ACCEPTED, 3L);
+                    assertThat(actual.topBooks()).extracting(OrderStatsReport.BookSales::bookIsbn)
+                            .containsExactly("1234567891");
+                });
+    }
+
+    @Test
+    void when_customer_then_forbidden() {
+        webClient
+                .mutateWith(SecurityMockServerConfigurers
+                        .mockJwt()
+                        .authorities(new SimpleGrantedAuthority("ROLE_customer")))
+                .get()
+                .uri("/orders/stats")
+                .exchange()
+                .expectStatus().isForbidden();
+
+        then(orderStats).should(never()).report(any(), anyInt());
+    }
+
+    @Test
+    void when_window_not_valid_then_bad_request() {
+        webClient
+                .mutateWith(SecurityMockServerConfigurers
+                        .mockJwt()
+                        .authorities(new SimpleGrantedAuthority("ROLE_employee")))
+                .get()
+                .uri("/orders/stats?window=yesterday")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        then(orderStats).should(never()).report(any(), anyInt());
+    }
+}
@@ -0,0 +1,61 @@
+package com.polarbookshop.orderservice.order.web;
+
+import com.polarbookshop.orderservice.config.RequestTrace;
+import com.polarbookshop.orderservice.web.RequestTraceWebFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestTraceWebFilterTests {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+    private final RequestTraceWebFilter filter = new RequestTraceWebFilter();
+
+    @Test
+    void when_traceparent_valid_then_trace_id_propagated() {
+        var exchange = exchange("00-" + TRACE_ID + "-00f067aa0ba902b7-01");
+        var propagated = new AtomicReference<String>();
+        WebFilterChain chain = ex -> Mono.deferContextual(context -> {
+            propagated.set(context.get(RequestTrace.CONTEXT_KEY));
+            return Mono.empty();
+        });
+
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+        assertThat(exchange.getResponse().getHeaders().getFirst("X-Trace-Id")).isEqualTo(TRACE_ID);
+        assertThat(propagated.get()).isEqualTo(TRACE_ID);
+    }
+
+    @Test
+    void when_traceparent_not_valid_then_trace_id_generated() {
+        var invalid = new String[] {
+                "00-" + TRACE_ID.toUpperCase() + "-00f067aa0ba902b7-01",
+                "00-" + "0".repeat(32) + "-00f067aa0ba902b7-01",
+                "00-" + TRACE_ID.substring(1) + "<-00f067aa0ba902b7-01",
+                "ff-" + TRACE_ID + "-00f067aa0ba902b7-01",
+                "00-" + TRACE_ID + "-00f067aa0ba902b7-01\r\nX-Injected: 1"
+        };
+        for (var traceparent : invalid) {
+            var exchange = exchange(traceparent);
+
+            StepVerifier.create(filter.filter(exchange, ex -> Mono.empty())).verifyComplete();
+
+            assertThat(exchange.getResponse().getHeaders().getFirst("X-Trace-Id"))
+                    .matches("[0-9a-f]{32}")
+                    .isNotEqualTo(TRACE_ID)
+                    .isNotEqualTo(TRACE_ID.toUpperCase());
+        }
+    }
+
+    private static MockServerWebExchange exchange(String traceparent) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/orders").header("traceparent", traceparent));
+    }
+}
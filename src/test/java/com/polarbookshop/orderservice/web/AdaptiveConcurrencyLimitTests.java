@@ -0,0 +1,89 @@
+package com.polarbookshop.orderservice.web;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTests {
+
+    private static final long THRESHOLD = 100;
+
+    @Test
+    void when_fast_requests_use_the_limit_then_it_grows() {
+        var limit = new AdaptiveConcurrencyLimit(2, 1, 10, THRESHOLD, 0.5);
+
+        for (int i = 0; i < 10; i++) {
+            limit.tryAcquire();
+            limit.tryAcquire();
+            limit.release(i * 10L, i * 10L + 5, false);
+            limit.release(i * 10L, i * 10L + 5, false);
+        }
+
+        assertThat(limit.limit()).isGreaterThan(2);
+        assertThat(limit.inFlight()).isZero();
+    }
+
+    @Test
+    void when_requests_far_below_the_limit_then_it_stays() {
+        var limit = new AdaptiveConcurrencyLimit(4, 1, 10, THRESHOLD, 0.5);
+
+        limit.tryAcquire();
+        limit.release(0, 5, false);
+        limit.tryAcquire();
+        limit.release(10, 10 + THRESHOLD * 2, false);
+
+        assertThat(limit.limit()).isEqualTo(4);
+    }
+
+    @Test
+    void when_burst_of_requests_fails_then_limit_backs_off_once() {
+        var limit = new AdaptiveConcurrencyLimit(8, 1, 10, THRESHOLD, 0.5);
+        for (int i = 0; i < 8; i++) {
+            limit.tryAcquire();
+        }
+
+        for (int i = 0; i < 8; i++) {
+            limit.release(0, 10 + i, true);
+        }
+
+        assertThat(limit.limit()).isEqualTo(4);
+        assertThat(limit.inFlight()).isZero();
+    }
+
+    @Test
+    void when_request_started_after_back_off_fails_then_limit_backs_off_again() {
+        var limit = new AdaptiveConcurrencyLimit(8, 1, 10, THRESHOLD, 0.5);
+        limit.tryAcquire();
+        limit.release(0, 10, true);
+
+        limit.tryAcquire();
+        limit.release(20, 30, true);
+
+        assertThat(limit.limit()).isEqualTo(2);
+    }
+
+    @Test
+    void when_slow_requests_saturate_the_limit_then_it_never_drops_below_minimum() {
+        var limit = new AdaptiveConcurrencyLimit(2, 1, 10, THRESHOLD, 0.5);
+
+        for (int i = 0; i < 5; i++) {
+            limit.tryAcquire();
+            limit.release(i * 1000L, i * 1000L + THRESHOLD * 2, false);
+        }
+
+        assertThat(limit.limit()).isEqualTo(1);
+    }
+
+    @Test
+    void when_released_without_sample_then_limit_unchanged() {
+        var limit = new AdaptiveConcurrencyLimit(2, 1, 10, THRESHOLD, 0.5);
+        limit.tryAcquire();
+        limit.tryAcquire();
+
+        limit.release();
+        limit.release();
+
+        assertThat(limit.limit()).isEqualTo(2);
+        assertThat(limit.inFlight()).isZero();
+    }
+}